@@ -0,0 +1,132 @@
+// AbbrevManagerDialog.java
+package com.emr.gds;
+
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * "DB Manager" window: lists, adds and removes abbreviations. All edits go through
+ * {@link AbbrevResolver}, so lookup tables update in place and edits are logged for sync.
+ */
+public class AbbrevManagerDialog {
+
+    private static final String ANY_LABEL = "(any)";
+
+    private final AbbrevResolver resolver;
+    private final TableView<AbbrevResolver.Entry> table = new TableView<>();
+
+    public AbbrevManagerDialog(AbbrevResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    public void show(Window owner) {
+        table.getColumns().add(column("Short", AbbrevResolver.Entry::key, 80));
+        table.getColumns().add(column("Expansion", AbbrevResolver.Entry::full, 280));
+        table.getColumns().add(column("Area", e -> orAny(e.area()), 110));
+        table.getColumns().add(column("Specialty", e -> orAny(e.specialty()), 120));
+
+        TextField key = new TextField();
+        key.setPromptText("short (without ':')");
+        TextField full = new TextField();
+        full.setPromptText("expansion");
+
+        List<String> areaChoices = new ArrayList<>();
+        areaChoices.add(ANY_LABEL);
+        areaChoices.addAll(List.of(IttiaApp.TEXT_AREA_TITLES));
+        ComboBox<String> area = new ComboBox<>(FXCollections.observableArrayList(areaChoices));
+        area.getSelectionModel().selectFirst();
+
+        TextField specialty = new TextField();
+        specialty.setPromptText("specialty (blank = any)");
+
+        table.getSelectionModel().selectedItemProperty().addListener((obs, old, e) -> {
+            if (e == null) return;
+            key.setText(e.key());
+            full.setText(e.full());
+            area.getSelectionModel().select(orAny(e.area()));
+            specialty.setText(e.specialty());
+        });
+
+        Button save = new Button("Save");
+        save.setOnAction(ev -> {
+            String k = Formatter.normalizeLine(key.getText());
+            String f = Formatter.normalizeLine(full.getText());
+            if (k.isEmpty() || f.isEmpty()) return;
+            run(() -> resolver.put(k, f, fromAny(area.getValue()), specialty.getText().strip()));
+        });
+
+        Button remove = new Button("Remove Selected");
+        remove.setOnAction(ev -> {
+            AbbrevResolver.Entry e = table.getSelectionModel().getSelectedItem();
+            if (e != null) run(() -> resolver.remove(e.key(), e.area(), e.specialty()));
+        });
+
+        HBox editor = new HBox(8, key, full, area, specialty, save, remove);
+        HBox.setHgrow(full, Priority.ALWAYS);
+
+        VBox box = new VBox(8, table, editor);
+        VBox.setVgrow(table, Priority.ALWAYS);
+        box.setPadding(new Insets(10));
+
+        reload();
+
+        Stage stage = new Stage();
+        stage.initOwner(owner);
+        stage.setTitle("Abbreviation DB Manager");
+        stage.setScene(new Scene(box, 900, 520));
+        stage.show();
+    }
+
+    // ===== Helpers =====
+
+    private interface SqlAction {
+        void run() throws SQLException;
+    }
+
+    private void run(SqlAction action) {
+        try {
+            action.run();
+            reload();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            new Alert(Alert.AlertType.ERROR, e.getMessage(), ButtonType.OK).showAndWait();
+        }
+    }
+
+    private void reload() {
+        try {
+            table.setItems(FXCollections.observableArrayList(resolver.entries()));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static TableColumn<AbbrevResolver.Entry, String> column(
+            String title, Function<AbbrevResolver.Entry, String> getter, double width) {
+        TableColumn<AbbrevResolver.Entry, String> col = new TableColumn<>(title);
+        col.setCellValueFactory(c -> new ReadOnlyStringWrapper(getter.apply(c.getValue())));
+        col.setPrefWidth(width);
+        return col;
+    }
+
+    private static String orAny(String s) {
+        return s == null || s.isEmpty() ? ANY_LABEL : s;
+    }
+
+    private static String fromAny(String s) {
+        return s == null || s.equals(ANY_LABEL) ? AbbrevResolver.ANY : s;
+    }
+}
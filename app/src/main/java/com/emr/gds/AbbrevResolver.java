@@ -0,0 +1,294 @@
+// AbbrevResolver.java
+package com.emr.gds;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves ":key" abbreviations per note area and specialty.
+ * <p>
+ * Each row of {@code abbreviations} carries an {@code area} (a {@link IttiaApp#TEXT_AREA_TITLES} entry)
+ * and a {@code specialty}; an empty string means "any". For a given area the most specific row wins:
+ * area+specialty, then area, then specialty, then global.
+ * <p>
+ * The fallback chain is folded into one precomputed table per area, so {@link #lookup} is a single
+ * hash lookup per keystroke. Edits made through {@link #put}/{@link #remove} only recompute the
+ * affected key; changes from other connections are picked up by {@link #refreshIfChanged()}.
+ * <p>
+ * Not thread-safe: used from the FX thread only.
+ */
+public class AbbrevResolver {
+
+    static final String ANY = "";
+
+    /** One scope of rows: empty area/specialty means "any". */
+    record Scope(String area, String specialty) {}
+
+    /** One row of the abbreviations table. */
+    public record Entry(String key, String full, String area, String specialty) {}
+
+    private final Connection conn;
+    private final String specialty;
+
+    // Raw rows of the scopes that can apply to this specialty
+    private final Map<Scope, Map<String, String>> raw = new HashMap<>();
+
+    // Resolved table per area index (fallback chain already applied)
+    private final Map<String, String>[] tables;
+
+    private long dataVersion = -1;
+
+    private AbbrevSync sync;
+
+    private Runnable onChange;
+
+    /**
+     * Loads the tables; call {@link #ensureSchema} on the connection first, or use {@link #open}.
+     */
+    @SuppressWarnings("unchecked")
+    public AbbrevResolver(Connection conn, String specialty) throws SQLException {
+        this.conn = conn;
+        this.specialty = specialty == null ? ANY : specialty;
+        this.tables = new Map[IttiaApp.TEXT_AREA_TITLES.length];
+        reload();
+    }
+
+    /**
+     * Prepares the schema and loads the tables. A brand-new database gets the starter rows; they are
+     * written once only, so a later delete (local or replicated) is never undone on restart.
+     */
+    public static AbbrevResolver open(Connection conn, String specialty) throws SQLException {
+        if (ensureSchema(conn)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("INSERT INTO abbreviations (short, full) VALUES ('c', 'hypercholesterolemia')");
+                stmt.execute("INSERT INTO abbreviations (short, full) VALUES ('to', 'hypothyroidism')");
+            }
+        }
+        return new AbbrevResolver(conn, specialty);
+    }
+
+    // ===== Schema =====
+
+    /**
+     * Creates the scoped table, or migrates the old {@code (short PRIMARY KEY, full)} table in place.
+     * Returns true only if there was no abbreviations table at all.
+     */
+    static boolean ensureSchema(Connection conn) throws SQLException {
+        boolean exists = false, scoped = false;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(abbreviations)")) {
+            while (rs.next()) {
+                exists = true;
+                if ("area".equals(rs.getString("name"))) scoped = true;
+            }
+        }
+        if (exists && scoped) return false;
+
+        boolean auto = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE abbreviations_scoped (" +
+                    "short TEXT NOT NULL, full TEXT, " +
+                    "area TEXT NOT NULL DEFAULT '', specialty TEXT NOT NULL DEFAULT '', " +
+                    "PRIMARY KEY (short, area, specialty))");
+            if (exists) {
+                stmt.execute("INSERT INTO abbreviations_scoped (short, full) SELECT short, full FROM abbreviations");
+                stmt.execute("DROP TABLE abbreviations");
+            }
+            stmt.execute("ALTER TABLE abbreviations_scoped RENAME TO abbreviations");
+            conn.commit();
+            return !exists;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(auto);
+        }
+    }
+
+    // ===== Lookup =====
+
+    /**
+     * Expansion of {@code key} in the area at {@code areaIndex}, or null.
+     */
+    public String lookup(int areaIndex, String key) {
+        if (areaIndex < 0 || areaIndex >= tables.length) return raw(new Scope(ANY, ANY)).get(key);
+        return tables[areaIndex].get(key);
+    }
+
+    /**
+     * Reloads everything if another connection has written to the database since the last load.
+     */
+    public void refreshIfChanged() {
+        try {
+            if (currentDataVersion() != dataVersion) {
+                reload();
+                changed();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Every expansion this workstation can produce, in any area (used to seed the term checker).
+     */
+    public List<String> expansions() {
+        List<String> out = new ArrayList<>();
+        for (Map<String, String> m : raw.values()) out.addAll(m.values());
+        return out;
+    }
+
+    /**
+     * Every row in the database, all specialties included (for the DB Manager).
+     */
+    public List<Entry> entries() throws SQLException {
+        List<Entry> out = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT short, full, area, specialty FROM abbreviations ORDER BY short, area, specialty")) {
+            while (rs.next()) {
+                out.add(new Entry(rs.getString("short"), rs.getString("full"),
+                        rs.getString("area"), rs.getString("specialty")));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Runs after the loaded abbreviations change, through an edit here or a reload (e.g. after sync).
+     */
+    public void setOnChange(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    // ===== Edits =====
+
+    /**
+     * Also log edits for replication; writes then commit together with their log entry.
+     */
+    public void setSync(AbbrevSync sync) {
+        this.sync = sync;
+    }
+
+    /**
+     * Inserts or replaces one abbreviation. Pass {@link #ANY} for area/specialty to widen the scope.
+     */
+    public void put(String key, String full, String area, String specialty) throws SQLException {
+        write(key, full, area, specialty, false,
+                "INSERT OR REPLACE INTO abbreviations (short, area, specialty, full) VALUES (?, ?, ?, ?)");
+        Scope scope = new Scope(area, specialty);
+        if (applies(scope)) {
+            raw(scope).put(key, full);
+            rebuildKey(key, area);
+            changed();
+        }
+    }
+
+    public void remove(String key, String area, String specialty) throws SQLException {
+        write(key, null, area, specialty, true,
+                "DELETE FROM abbreviations WHERE short = ? AND area = ? AND specialty = ?");
+        Scope scope = new Scope(area, specialty);
+        if (applies(scope)) {
+            raw(scope).remove(key);
+            rebuildKey(key, area);
+            changed();
+        }
+    }
+
+    // ===== Internals =====
+
+    private void write(String key, String full, String area, String specialty, boolean delete, String sql)
+            throws SQLException {
+        boolean auto = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, key);
+            ps.setString(2, area);
+            ps.setString(3, specialty);
+            if (!delete) ps.setString(4, full);
+            ps.executeUpdate();
+            if (sync != null) sync.logLocal(key, full, area, specialty, delete);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(auto);
+        }
+    }
+
+    private void changed() {
+        if (onChange != null) onChange.run();
+    }
+
+    private void reload() throws SQLException {
+        raw.clear();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT short, full, area, specialty FROM abbreviations WHERE specialty = '' OR specialty = ?")) {
+            ps.setString(1, specialty);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Scope scope = new Scope(rs.getString("area"), rs.getString("specialty"));
+                    raw(scope).put(rs.getString("short"), rs.getString("full"));
+                }
+            }
+        }
+
+        // Fold global <- specialty <- area <- area+specialty into one table per area
+        for (int i = 0; i < tables.length; i++) {
+            String area = IttiaApp.TEXT_AREA_TITLES[i];
+            Map<String, String> t = new HashMap<>(raw(new Scope(ANY, ANY)));
+            t.putAll(raw(new Scope(ANY, specialty)));
+            t.putAll(raw(new Scope(area, ANY)));
+            t.putAll(raw(new Scope(area, specialty)));
+            tables[i] = t;
+        }
+        dataVersion = currentDataVersion();
+    }
+
+    /** Recomputes one key in the areas a change to {@code area} can reach. */
+    private void rebuildKey(String key, String area) {
+        for (int i = 0; i < tables.length; i++) {
+            String title = IttiaApp.TEXT_AREA_TITLES[i];
+            if (!area.equals(ANY) && !area.equals(title)) continue;
+            String v = resolve(key, title);
+            if (v == null) tables[i].remove(key);
+            else tables[i].put(key, v);
+        }
+    }
+
+    private String resolve(String key, String area) {
+        Scope[] chain = {
+                new Scope(area, specialty), new Scope(area, ANY),
+                new Scope(ANY, specialty), new Scope(ANY, ANY)
+        };
+        for (Scope s : chain) {
+            Map<String, String> m = raw.get(s);
+            if (m != null && m.containsKey(key)) return m.get(key);
+        }
+        return null;
+    }
+
+    private boolean applies(Scope scope) {
+        return scope.specialty().equals(ANY) || scope.specialty().equals(specialty);
+    }
+
+    private Map<String, String> raw(Scope scope) {
+        return raw.computeIfAbsent(scope, s -> new HashMap<>());
+    }
+
+    private long currentDataVersion() throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA data_version")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
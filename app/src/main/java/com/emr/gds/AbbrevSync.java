@@ -0,0 +1,370 @@
+// AbbrevSync.java
+package com.emr.gds;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Replicates abbreviation edits between workstations through a shared folder.
+ * <p>
+ * Every local edit is appended to {@code abbrev_changelog} with a hybrid logical clock (HLC)
+ * timestamp. {@link #publish} writes the local changes not yet shared to
+ * {@code <dir>/<node>/<first>-<last>.batch}; {@link #pull} reads the other nodes' batch files
+ * past the version vector kept in {@code sync_peers} and applies each file in one transaction.
+ * <p>
+ * Conflicts are last-writer-wins on (HLC, node id), remembered per row in
+ * {@code abbrev_row_clock}, so every node converges to the same table whatever the order
+ * batches arrive in. Deletes replicate as tombstones. Templates are still compiled into
+ * {@link ListButtonAction.TemplateLibrary} and are not part of the database, so only
+ * abbreviations are synced.
+ */
+public class AbbrevSync {
+
+    private static final int BATCH_MAGIC = 0x41425331; // "ABS1"
+
+    /** One replicated edit. */
+    record Change(long hlc, String node, String key, String area, String specialty, String full, boolean deleted) {}
+
+    private final Connection conn;
+    private final LongSupplier wallClock;
+    private final String nodeId;
+
+    public AbbrevSync(Connection conn) throws SQLException {
+        this(conn, System::currentTimeMillis);
+    }
+
+    AbbrevSync(Connection conn, LongSupplier wallClock) throws SQLException {
+        this.conn = conn;
+        this.wallClock = wallClock;
+        ensureSchema(conn);
+        this.nodeId = initNode();
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    // ===== Schema =====
+
+    static void ensureSchema(Connection conn) throws SQLException {
+        AbbrevResolver.ensureSchema(conn);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS abbrev_changelog (" +
+                    "hlc INTEGER NOT NULL, node TEXT NOT NULL, short TEXT NOT NULL, area TEXT NOT NULL, " +
+                    "specialty TEXT NOT NULL, full TEXT, deleted INTEGER NOT NULL, PRIMARY KEY (hlc, node))");
+            stmt.execute("CREATE TABLE IF NOT EXISTS abbrev_row_clock (" +
+                    "short TEXT NOT NULL, area TEXT NOT NULL, specialty TEXT NOT NULL, " +
+                    "hlc INTEGER NOT NULL, node TEXT NOT NULL, PRIMARY KEY (short, area, specialty))");
+            stmt.execute("CREATE TABLE IF NOT EXISTS sync_peers (node TEXT PRIMARY KEY, hlc INTEGER NOT NULL)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS sync_state (name TEXT PRIMARY KEY, value TEXT)");
+        }
+    }
+
+    /**
+     * Reads the node id, or creates one and logs the rows that predate syncing so they replicate too.
+     */
+    private String initNode() throws SQLException {
+        String id = state("node");
+        if (id != null) return id;
+
+        String newId = UUID.randomUUID().toString();
+        inTransaction(() -> {
+            setState("node", newId);
+            List<Change> existing = new ArrayList<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT short, full, area, specialty FROM abbreviations")) {
+                while (rs.next()) {
+                    existing.add(new Change(0, newId, rs.getString("short"), rs.getString("area"),
+                            rs.getString("specialty"), rs.getString("full"), false));
+                }
+            }
+            for (Change c : existing) log(newId, c.key(), c.full(), c.area(), c.specialty(), false);
+        });
+        return newId;
+    }
+
+    // ===== Local edits =====
+
+    /**
+     * Logs a local edit that the caller has just written to {@code abbreviations}.
+     * Call inside the caller's transaction so the row and its log entry commit together.
+     */
+    public void logLocal(String key, String full, String area, String specialty, boolean deleted) throws SQLException {
+        log(nodeId, key, full, area, specialty, deleted);
+    }
+
+    private void log(String node, String key, String full, String area, String specialty, boolean deleted)
+            throws SQLException {
+        long hlc = tick(stateLong("hlc"), wallClock.getAsLong());
+        setState("hlc", Long.toString(hlc));
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO abbrev_changelog (hlc, node, short, area, specialty, full, deleted) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            ps.setLong(1, hlc);
+            ps.setString(2, node);
+            ps.setString(3, key);
+            ps.setString(4, area);
+            ps.setString(5, specialty);
+            ps.setString(6, full);
+            ps.setInt(7, deleted ? 1 : 0);
+            ps.executeUpdate();
+        }
+        setRowClock(key, area, specialty, hlc, node);
+    }
+
+    // ===== Exchange =====
+
+    /** Publishes then pulls; returns the number of remote changes applied. */
+    public int sync(Path dir) throws IOException, SQLException {
+        publish(dir);
+        return pull(dir);
+    }
+
+    /**
+     * Writes local changes not yet published as one batch file; returns how many were written.
+     */
+    public int publish(Path dir) throws IOException, SQLException {
+        long published = stateLong("published");
+        List<Change> out = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT hlc, short, area, specialty, full, deleted FROM abbrev_changelog " +
+                "WHERE node = ? AND hlc > ? ORDER BY hlc")) {
+            ps.setString(1, nodeId);
+            ps.setLong(2, published);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new Change(rs.getLong("hlc"), nodeId, rs.getString("short"), rs.getString("area"),
+                            rs.getString("specialty"), rs.getString("full"), rs.getInt("deleted") != 0));
+                }
+            }
+        }
+        if (out.isEmpty()) return 0;
+
+        Path nodeDir = Files.createDirectories(dir.resolve(nodeId));
+        long first = out.get(0).hlc(), last = out.get(out.size() - 1).hlc();
+        Path file = nodeDir.resolve(String.format("%016x-%016x.batch", first, last));
+        Path tmp = nodeDir.resolve(file.getFileName() + ".tmp");
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            dos.writeInt(BATCH_MAGIC);
+            dos.writeInt(out.size());
+            for (Change c : out) {
+                dos.writeLong(c.hlc());
+                dos.writeUTF(c.key());
+                dos.writeUTF(c.area());
+                dos.writeUTF(c.specialty());
+                dos.writeBoolean(c.deleted());
+                dos.writeUTF(c.full() == null ? "" : c.full());
+            }
+        }
+        // Readers only ever see complete batches
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        setState("published", Long.toString(last));
+        return out.size();
+    }
+
+    /**
+     * Applies other nodes' batches newer than what was seen from them; returns changes applied.
+     */
+    public int pull(Path dir) throws IOException, SQLException {
+        if (!Files.isDirectory(dir)) return 0;
+        int applied = 0;
+        try (DirectoryStream<Path> nodes = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path nodeDir : nodes) {
+                String node = nodeDir.getFileName().toString();
+                if (node.equals(nodeId)) continue;
+
+                List<Path> batches = new ArrayList<>();
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(nodeDir, "*.batch")) {
+                    files.forEach(batches::add);
+                }
+                batches.sort(null); // fixed-width hex names sort by HLC
+
+                for (Path batch : batches) {
+                    long seen = peerVersion(node);
+                    if (lastHlcOf(batch) <= seen) continue;
+                    applied += applyBatch(node, read(node, batch), seen);
+                }
+            }
+        }
+        return applied;
+    }
+
+    private int applyBatch(String node, List<Change> changes, long seen) throws SQLException {
+        int[] applied = {0};
+        inTransaction(() -> {
+            long clock = stateLong("hlc");
+            long max = seen;
+            for (Change c : changes) {
+                if (c.hlc() <= seen) continue;
+                clock = merge(clock, c.hlc(), wallClock.getAsLong());
+                max = Math.max(max, c.hlc());
+                if (wins(c)) {
+                    applyRow(c);
+                    applied[0]++;
+                }
+            }
+            setState("hlc", Long.toString(clock));
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT OR REPLACE INTO sync_peers (node, hlc) VALUES (?, ?)")) {
+                ps.setString(1, node);
+                ps.setLong(2, max);
+                ps.executeUpdate();
+            }
+        });
+        return applied[0];
+    }
+
+    /** Last-writer-wins on (hlc, node). */
+    private boolean wins(Change c) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT hlc, node FROM abbrev_row_clock WHERE short = ? AND area = ? AND specialty = ?")) {
+            ps.setString(1, c.key());
+            ps.setString(2, c.area());
+            ps.setString(3, c.specialty());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return true;
+                long hlc = rs.getLong("hlc");
+                return c.hlc() != hlc ? c.hlc() > hlc : c.node().compareTo(rs.getString("node")) > 0;
+            }
+        }
+    }
+
+    private void applyRow(Change c) throws SQLException {
+        String sql = c.deleted()
+                ? "DELETE FROM abbreviations WHERE short = ? AND area = ? AND specialty = ?"
+                : "INSERT OR REPLACE INTO abbreviations (short, area, specialty, full) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, c.key());
+            ps.setString(2, c.area());
+            ps.setString(3, c.specialty());
+            if (!c.deleted()) ps.setString(4, c.full());
+            ps.executeUpdate();
+        }
+        setRowClock(c.key(), c.area(), c.specialty(), c.hlc(), c.node());
+    }
+
+    private static List<Change> read(String node, Path batch) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(batch)))) {
+            if (in.readInt() != BATCH_MAGIC) throw new IOException("Not a sync batch: " + batch);
+            int n = in.readInt();
+            List<Change> out = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                long hlc = in.readLong();
+                String key = in.readUTF(), area = in.readUTF(), specialty = in.readUTF();
+                boolean deleted = in.readBoolean();
+                String full = in.readUTF();
+                out.add(new Change(hlc, node, key, area, specialty, full, deleted));
+            }
+            return out;
+        }
+    }
+
+    private static long lastHlcOf(Path batch) {
+        String name = batch.getFileName().toString();
+        int dash = name.indexOf('-'), dot = name.indexOf('.');
+        try {
+            return Long.parseUnsignedLong(name.substring(dash + 1, dot), 16);
+        } catch (RuntimeException e) {
+            return Long.MAX_VALUE; // unknown name: read it and filter per change
+        }
+    }
+
+    // ===== Hybrid logical clock =====
+    // Upper 48 bits: wall-clock millis; lower 16 bits: logical counter.
+
+    static long tick(long last, long wallMillis) {
+        long pt = Math.max(last >>> 16, wallMillis);
+        long l = pt == (last >>> 16) ? (last & 0xFFFF) + 1 : 0;
+        return (pt << 16) + l;
+    }
+
+    static long merge(long last, long remote, long wallMillis) {
+        long lp = last >>> 16, rp = remote >>> 16;
+        long pt = Math.max(Math.max(lp, rp), wallMillis);
+        long l;
+        if (pt == lp && pt == rp) l = Math.max(last & 0xFFFF, remote & 0xFFFF) + 1;
+        else if (pt == lp) l = (last & 0xFFFF) + 1;
+        else if (pt == rp) l = (remote & 0xFFFF) + 1;
+        else l = 0;
+        return (pt << 16) + l;
+    }
+
+    // ===== State helpers =====
+
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    private void inTransaction(SqlWork work) throws SQLException {
+        boolean auto = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            work.run();
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(auto);
+        }
+    }
+
+    private long peerVersion(String node) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT hlc FROM sync_peers WHERE node = ?")) {
+            ps.setString(1, node);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private void setRowClock(String key, String area, String specialty, long hlc, String node) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT OR REPLACE INTO abbrev_row_clock (short, area, specialty, hlc, node) VALUES (?, ?, ?, ?, ?)")) {
+            ps.setString(1, key);
+            ps.setString(2, area);
+            ps.setString(3, specialty);
+            ps.setLong(4, hlc);
+            ps.setString(5, node);
+            ps.executeUpdate();
+        }
+    }
+
+    private String state(String name) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT value FROM sync_state WHERE name = ?")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private long stateLong(String name) throws SQLException {
+        String v = state(name);
+        return v == null ? 0 : Long.parseLong(v);
+    }
+
+    private void setState(String name, String value) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT OR REPLACE INTO sync_state (name, value) VALUES (?, ?)")) {
+            ps.setString(1, name);
+            ps.setString(2, value);
+            ps.executeUpdate();
+        }
+    }
+}
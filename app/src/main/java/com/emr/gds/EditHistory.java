@@ -0,0 +1,295 @@
+// EditHistory.java
+package com.emr.gds;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Undo/redo across all center areas.
+ * <p>
+ * Every change is stored as a small delta (area, position, removed text, inserted text) in a ring
+ * buffer. Consecutive typing in one word is merged into a single delta, and changes made between
+ * {@link #beginGroup()} and {@link #endGroup()} (abbreviation expansion, template insertion) undo
+ * as one step. When the configured memory budget is exceeded the oldest groups are dropped.
+ * <p>
+ * Every {@code checkpointEvery} deltas a full snapshot of the areas is kept, so {@link #jumpTo}
+ * restores the nearest snapshot and replays at most that many deltas.
+ * <p>
+ * Not thread-safe: used from the FX thread only.
+ */
+public class EditHistory {
+
+    /** Where the history reads current text and applies undo/redo. */
+    public interface Target {
+        int areaCount();
+
+        String text(int area);
+
+        /** Replace [start, end) of {@code area}; this change must not be fed back to {@link #record}. */
+        void replace(int area, int start, int end, String text);
+    }
+
+    record Delta(int area, int pos, String removed, String inserted, long group, boolean typing) {
+        long bytes() {
+            return 2L * (removed.length() + inserted.length()) + 48;
+        }
+    }
+
+    public static final long DEFAULT_MAX_BYTES = 8L * 1024 * 1024;
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+    public static final int DEFAULT_CHECKPOINT_EVERY = 256;
+
+    private final Target target;
+    private final long maxBytes;
+    private final int maxEntries;
+    private final int checkpointEvery;
+
+    // Ring of deltas: ring[(head + i) % ring.length] turns version base+i into base+i+1
+    private Delta[] ring = new Delta[256];
+    private int head;
+    private int count;
+    private int applied;  // deltas currently applied; version() == base + applied
+    private long base;
+    private long bytes;
+
+    // Full snapshots keyed by version
+    private final TreeMap<Long, String[]> checkpoints = new TreeMap<>();
+    private int sinceCheckpoint;
+    private boolean checkpointDue;
+
+    private int groupDepth;
+    private long currentGroup;
+    private long nextGroup = 1;
+    private boolean applying;
+
+    public EditHistory(Target target) {
+        this(target, DEFAULT_MAX_BYTES, DEFAULT_MAX_ENTRIES, DEFAULT_CHECKPOINT_EVERY);
+    }
+
+    public EditHistory(Target target, long maxBytes, int maxEntries, int checkpointEvery) {
+        this.target = target;
+        this.maxBytes = maxBytes;
+        this.maxEntries = Math.max(2, maxEntries);
+        this.checkpointEvery = Math.max(1, checkpointEvery);
+    }
+
+    // ===== Recording =====
+
+    /**
+     * Records a change that is about to be committed: {@code removed} at {@code pos} becomes {@code inserted}.
+     */
+    public void record(int area, int pos, String removed, String inserted) {
+        if (applying || (removed.isEmpty() && inserted.isEmpty())) return;
+        takeDueCheckpoint();
+        dropRedo();
+
+        boolean typing = groupDepth == 0 && removed.isEmpty() && inserted.length() == 1 && !inserted.equals("\n");
+        if (typing && applied > 0) {
+            Delta last = ring[slot(applied - 1)];
+            if (last.typing() && last.area() == area && last.pos() + last.inserted().length() == pos
+                    && !last.inserted().endsWith(" ") && !checkpoints.containsKey(version())) {
+                Delta merged = new Delta(area, last.pos(), "", last.inserted() + inserted, last.group(), true);
+                ring[slot(applied - 1)] = merged;
+                bytes += merged.bytes() - last.bytes();
+                return;
+            }
+        }
+
+        long group = groupDepth > 0 ? currentGroup : nextGroup++;
+        push(new Delta(area, pos, removed, inserted, group, typing));
+        if (++sinceCheckpoint >= checkpointEvery) checkpointDue = true;
+        evict();
+    }
+
+    /**
+     * Starts an atomic operation; nested calls join the outer one.
+     */
+    public void beginGroup() {
+        if (groupDepth++ == 0) currentGroup = nextGroup++;
+    }
+
+    public void endGroup() {
+        if (groupDepth > 0 && --groupDepth == 0) takeDueCheckpoint();
+    }
+
+    // ===== Navigation =====
+
+    public long version() {
+        return base + applied;
+    }
+
+    public long oldestVersion() {
+        return base;
+    }
+
+    public long newestVersion() {
+        return base + count;
+    }
+
+    public boolean canUndo() {
+        return applied > 0;
+    }
+
+    public boolean canRedo() {
+        return applied < count;
+    }
+
+    /**
+     * Reverts the last group; returns the area it touched, or -1.
+     */
+    public int undo() {
+        takeDueCheckpoint();
+        if (applied == 0) return -1;
+        long group = ring[slot(applied - 1)].group();
+        int area = -1;
+        while (applied > 0 && ring[slot(applied - 1)].group() == group) {
+            area = unapply(ring[slot(--applied)]);
+        }
+        return area;
+    }
+
+    /**
+     * Re-applies the next group; returns the area it touched, or -1.
+     */
+    public int redo() {
+        takeDueCheckpoint();
+        if (applied == count) return -1;
+        long group = ring[slot(applied)].group();
+        int area = -1;
+        while (applied < count && ring[slot(applied)].group() == group) {
+            area = apply(ring[slot(applied++)]);
+        }
+        return area;
+    }
+
+    /**
+     * Moves all areas to the state at {@code version} (clamped to the retained range), using the
+     * nearest checkpoint when that is cheaper than stepping from the current version.
+     */
+    public void jumpTo(long version) {
+        takeDueCheckpoint();
+        long v = Math.max(base, Math.min(base + count, version));
+        long stepCost = Math.abs(v - version());
+
+        Map.Entry<Long, String[]> cp = checkpoints.floorEntry(v);
+        if (cp != null && cp.getKey() >= base && v - cp.getKey() + target.areaCount() < stepCost) {
+            restore(cp.getValue());
+            applied = (int) (cp.getKey() - base);
+        }
+        while (version() > v) unapply(ring[slot(--applied)]);
+        while (version() < v) apply(ring[slot(applied++)]);
+    }
+
+    /** Approximate heap held by deltas and checkpoints. */
+    public long bytes() {
+        return bytes;
+    }
+
+    // ===== Internals =====
+
+    private int apply(Delta d) {
+        replace(d.area(), d.pos(), d.pos() + d.removed().length(), d.inserted());
+        return d.area();
+    }
+
+    private int unapply(Delta d) {
+        replace(d.area(), d.pos(), d.pos() + d.inserted().length(), d.removed());
+        return d.area();
+    }
+
+    private void replace(int area, int start, int end, String text) {
+        applying = true;
+        try {
+            target.replace(area, start, end, text);
+        } finally {
+            applying = false;
+        }
+    }
+
+    private void restore(String[] snapshot) {
+        for (int i = 0; i < snapshot.length; i++) {
+            String now = target.text(i);
+            if (!now.equals(snapshot[i])) replace(i, 0, now.length(), snapshot[i]);
+        }
+    }
+
+    private void takeDueCheckpoint() {
+        if (!checkpointDue || groupDepth > 0) return;
+        String[] snap = new String[target.areaCount()];
+        long size = 16L * snap.length;
+        for (int i = 0; i < snap.length; i++) {
+            snap[i] = target.text(i);
+            size += 2L * snap[i].length();
+        }
+        String[] old = checkpoints.put(version(), snap);
+        if (old != null) bytes -= snapshotBytes(old);
+        bytes += size;
+        sinceCheckpoint = 0;
+        checkpointDue = false;
+        evict();
+    }
+
+    private void push(Delta d) {
+        if (count == ring.length) {
+            if (ring.length < maxEntries) {
+                Delta[] grown = new Delta[Math.min(maxEntries, ring.length * 2)];
+                for (int i = 0; i < count; i++) grown[i] = ring[slot(i)];
+                ring = grown;
+                head = 0;
+            } else {
+                evictOldestGroup();
+            }
+        }
+        ring[slot(count)] = d;
+        count++;
+        applied++;
+        bytes += d.bytes();
+    }
+
+    /** A new edit after undo discards everything that could have been redone. */
+    private void dropRedo() {
+        while (count > applied) {
+            int s = slot(--count);
+            bytes -= ring[s].bytes();
+            ring[s] = null;
+        }
+        while (!checkpoints.isEmpty() && checkpoints.lastKey() > version()) {
+            bytes -= snapshotBytes(checkpoints.pollLastEntry().getValue());
+        }
+    }
+
+    private void evict() {
+        while (bytes > maxBytes && applied > 0) evictOldestGroup();
+        // Everything left is redo; trim it from the far end
+        while (bytes > maxBytes && count > applied) {
+            int s = slot(--count);
+            bytes -= ring[s].bytes();
+            ring[s] = null;
+        }
+    }
+
+    private void evictOldestGroup() {
+        long group = ring[head].group();
+        while (count > 0 && applied > 0 && ring[head].group() == group) {
+            bytes -= ring[head].bytes();
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            count--;
+            applied--;
+            base++;
+        }
+        while (!checkpoints.isEmpty() && checkpoints.firstKey() < base) {
+            bytes -= snapshotBytes(checkpoints.pollFirstEntry().getValue());
+        }
+    }
+
+    private int slot(int i) {
+        return (head + i) % ring.length;
+    }
+
+    private static long snapshotBytes(String[] snap) {
+        long size = 16L * snap.length;
+        for (String s : snap) size += 2L * s.length();
+        return size;
+    }
+}
@@ -0,0 +1,76 @@
+// Formatter.java
+package com.emr.gds;
+
+import java.util.regex.Pattern;
+
+/**
+ * Text clean-up shared by the editor (Ctrl+Shift+F, Copy All) and the headless {@link IttiaBatch} runner.
+ * Plain Java on purpose: nothing here may pull in JavaFX.
+ */
+public final class Formatter {
+    // Precompiled: the batch runner pushes every archived line through these
+    private static final Pattern FANCY_BULLET = Pattern.compile("^[•·→▶▷‣⦿∘*]+\\s*");
+    private static final Pattern DASH_BULLET = Pattern.compile("^[-]{1,2}\\s*");
+    private static final Pattern TRAILING_WS = Pattern.compile("\\s+$");
+    // Document start only: the exporter writes every section header with "# " already, and body
+    // lines such as "#1 DM, controlled" in A/P must stay as typed
+    private static final Pattern HEADER_SPACE = Pattern.compile("^(#+)([^#\\s])");
+    private static final Pattern EXTRA_BLANKS = Pattern.compile("\n{3,}");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private Formatter() {}
+
+    public static String normalizeLine(String s) {
+        return s == null ? "" : WHITESPACE.matcher(s.trim()).replaceAll(" ");
+    }
+
+    /**
+     * Normalize bullets, collapse blank lines, trim trailing spaces.
+     */
+    static String autoFormat(String raw) {
+        if (raw == null || raw.isBlank()) return "";
+        String[] lines = raw.replace("\r", "").split("\n", -1);
+        StringBuilder out = new StringBuilder();
+        boolean lastBlank = false;
+        for (String line : lines) {
+            String t = line.strip();
+            // Normalize bullets to "- "
+            t = FANCY_BULLET.matcher(t).replaceAll("- ");
+            t = DASH_BULLET.matcher(t).replaceAll("- ");
+            // collapse internal spaces
+            t = TRAILING_WS.matcher(t).replaceAll("");
+
+            if (t.isEmpty()) {
+                if (!lastBlank) {
+                    out.append("\n");
+                    lastBlank = true;
+                }
+            } else {
+                out.append(t).append("\n");
+                lastBlank = false;
+            }
+        }
+        return out.toString().strip();
+    }
+
+    /**
+     * Final pass for EMR export: ensure headers start with '# ' and
+     * ensure a clean single blank line between sections.
+     */
+    static String finalizeForEMR(String raw) {
+        return finishForEMR(autoFormat(raw));
+    }
+
+    /**
+     * The part of {@link #finalizeForEMR} that runs after {@link #autoFormat};
+     * lets {@link NoteExportCache} reuse sections that are already formatted.
+     */
+    static String finishForEMR(String formatted) {
+        String s = formatted;
+        // Ensure a leading markdown-like header starts with '# '
+        s = HEADER_SPACE.matcher(s).replaceAll("$1 $2");
+        // Guarantee single blank line between sections
+        s = EXTRA_BLANKS.matcher(s).replaceAll("\n\n");
+        return s.trim();
+    }
+}
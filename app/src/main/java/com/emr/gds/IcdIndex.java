@@ -0,0 +1,329 @@
+// IcdIndex.java
+package com.emr.gds;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * ICD-10 code lookup over a memory-mapped, sorted token index.
+ * <p>
+ * The index file is read through a {@link MappedByteBuffer}; nothing but the mapping lives on the
+ * heap, so the full code set (tens of thousands of rows) costs no more to keep open than the
+ * bundled sample. Queries binary-search the sorted token table for each typed word as a prefix,
+ * intersect the posting lists, and decode only the codes that are returned. Codes are stored in rank
+ * order (shortest, i.e. most general, description first, then code), so the first {@code limit} set
+ * bits are the answer and nothing is sorted per keystroke.
+ * <p>
+ * The header records which code list the index came from; an index built from the bundled list is
+ * rebuilt when that list changes, one built from an external list is kept.
+ *
+ * <pre>
+ * header   int magic, version, codeCount, tokenCount, codesOff, tokensOff, postingsOff, stringsOff,
+ *          long sourceStamp (0 = external list)
+ * codes    codeCount  x (int codeStr, int descStr), in rank order
+ * tokens   tokenCount x (int tokenStr, int postingStart, int postingCount), sorted by token bytes
+ * postings int code ids, ascending per token
+ * strings  u16 length + UTF-8 bytes
+ * </pre>
+ *
+ * To index the full CMS code list: {@code IcdIndex <codes.txt|tsv> icd10.idx}.
+ */
+public final class IcdIndex {
+
+    public static final String INDEX_FILE = "icd10.idx";
+    static final String BUNDLED_CODES = "/database/icd10.tsv";
+
+    private static final int MAGIC = 0x49434431; // "ICD1"
+    private static final int VERSION = 2;
+    private static final int HEADER = 40;
+    private static final int CODE_ENTRY = 8;
+    private static final int TOKEN_ENTRY = 12;
+
+    private static final Set<String> STOP_WORDS = Set.of("and", "of", "with", "the", "in", "or", "to", "for", "due", "without");
+
+    /** One suggestion for the problem list. */
+    public record Code(String code, String description) {}
+
+    private final MappedByteBuffer buf;
+    private final int codeCount, tokenCount, codesOff, tokensOff, postingsOff, stringsOff;
+
+    private IcdIndex(MappedByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.capacity() < HEADER || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+            throw new IOException("Not an ICD index (or wrong version)");
+        }
+        codeCount = buf.getInt(8);
+        tokenCount = buf.getInt(12);
+        codesOff = buf.getInt(16);
+        tokensOff = buf.getInt(20);
+        postingsOff = buf.getInt(24);
+        stringsOff = buf.getInt(28);
+    }
+
+    /**
+     * Maps {@code file}, building it from the bundled code list first if it is missing, unreadable,
+     * or was built from an older version of the bundled list.
+     */
+    public static IcdIndex openOrBuild(Path file) throws IOException {
+        byte[] bundled;
+        try (InputStream in = IcdIndex.class.getResourceAsStream(BUNDLED_CODES)) {
+            if (in == null) throw new IOException("Missing resource " + BUNDLED_CODES);
+            bundled = in.readAllBytes();
+        }
+        long stamp = stamp(bundled);
+
+        if (Files.isRegularFile(file)) {
+            try {
+                // Checked with a plain read: a mapped file cannot be replaced on Windows
+                long existing = readStamp(file);
+                if (existing == 0 || existing == stamp) return open(file);
+                System.err.println("Rebuilding " + file + ": bundled code list changed");
+            } catch (IOException e) {
+                System.err.println("Rebuilding " + file + ": " + e.getMessage());
+            }
+        }
+        build(new InputStreamReader(new ByteArrayInputStream(bundled), StandardCharsets.UTF_8), file, stamp);
+        return open(file);
+    }
+
+    public static IcdIndex open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new IcdIndex(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    private static long readStamp(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && ch.read(header) >= 0) {
+                // keep reading
+            }
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not an ICD index (or wrong version)");
+        }
+        return header.getLong(32);
+    }
+
+    public int size() {
+        return codeCount;
+    }
+
+    // ===== Search =====
+
+    /**
+     * Codes whose description or code matches every word of {@code query} as a prefix.
+     * Bracketed notes such as "[F/U]" or "(FBS 108 mg/dL)" are ignored.
+     */
+    public List<Code> search(String query, int limit) {
+        List<String> words = tokenize(query.replaceAll("\\[[^\\]]*\\]|\\([^)]*\\)", " "));
+        words.removeIf(w -> STOP_WORDS.contains(w));
+        if (words.isEmpty()) return List.of();
+
+        BitSet hits = null;
+        for (String w : words) {
+            BitSet ids = prefixPostings(w.getBytes(StandardCharsets.UTF_8));
+            if (hits == null) hits = ids;
+            else hits.and(ids);
+            if (hits.isEmpty()) return List.of();
+        }
+
+        // Ids are already in rank order
+        List<Code> out = new ArrayList<>(Math.min(limit, 16));
+        for (int id = hits.nextSetBit(0); id >= 0 && out.size() < limit; id = hits.nextSetBit(id + 1)) {
+            int e = codesOff + id * CODE_ENTRY;
+            out.add(new Code(string(buf.getInt(e)), string(buf.getInt(e + 4))));
+        }
+        return out;
+    }
+
+    private BitSet prefixPostings(byte[] prefix) {
+        BitSet ids = new BitSet(codeCount);
+        // Lower bound: first token >= prefix
+        int lo = 0, hi = tokenCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareToken(mid, prefix) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        for (int t = lo; t < tokenCount && startsWith(t, prefix); t++) {
+            int e = tokensOff + t * TOKEN_ENTRY;
+            int start = buf.getInt(e + 4), count = buf.getInt(e + 8);
+            for (int i = 0; i < count; i++) ids.set(buf.getInt(postingsOff + (start + i) * 4));
+        }
+        return ids;
+    }
+
+    private int compareToken(int t, byte[] key) {
+        int s = stringsOff + buf.getInt(tokensOff + t * TOKEN_ENTRY);
+        int len = buf.getShort(s) & 0xFFFF;
+        int n = Math.min(len, key.length);
+        for (int i = 0; i < n; i++) {
+            int c = Integer.compare(buf.get(s + 2 + i) & 0xFF, key[i] & 0xFF);
+            if (c != 0) return c;
+        }
+        return Integer.compare(len, key.length);
+    }
+
+    private boolean startsWith(int t, byte[] prefix) {
+        int s = stringsOff + buf.getInt(tokensOff + t * TOKEN_ENTRY);
+        int len = buf.getShort(s) & 0xFFFF;
+        if (len < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf.get(s + 2 + i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private String string(int off) {
+        int s = stringsOff + off;
+        byte[] b = new byte[buf.getShort(s) & 0xFFFF];
+        buf.get(s + 2, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /** Lower-case alphanumeric words; dots inside codes are dropped so "E78.0" is one word. */
+    static List<String> tokenize(String text) {
+        String s = text.toLowerCase(Locale.ROOT).replaceAll("(?<=[a-z0-9])\\.(?=[a-z0-9])", "");
+        List<String> out = new ArrayList<>();
+        for (String w : s.split("[^\\p{L}\\p{N}]+")) {
+            if (!w.isEmpty()) out.add(w);
+        }
+        return out;
+    }
+
+    // ===== Build =====
+
+    /**
+     * Writes an index for "code&lt;TAB&gt;description" lines (or CMS order-file style
+     * "E7800 description"). Lines starting with '#' are skipped. The index is marked as built
+     * from an external list, so {@link #openOrBuild} never replaces it.
+     */
+    public static void build(Reader source, Path file) throws IOException {
+        build(source, file, 0);
+    }
+
+    private static void build(Reader source, Path file, long sourceStamp) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        BufferedReader r = new BufferedReader(source);
+        for (String line = r.readLine(); line != null; line = r.readLine()) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            int split = line.indexOf('\t');
+            if (split < 0) split = line.indexOf(' ');
+            if (split < 0) continue;
+            String code = line.substring(0, split).strip().toUpperCase(Locale.ROOT);
+            if (code.indexOf('.') < 0 && code.length() > 3) code = code.substring(0, 3) + "." + code.substring(3);
+            rows.add(new String[] {code, line.substring(split + 1).strip()});
+        }
+        // Rank order: shortest (most general) description first, then code
+        rows.sort(Comparator.<String[]>comparingInt(a -> a[1].getBytes(StandardCharsets.UTF_8).length)
+                .thenComparing(a -> a[0]));
+
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        DataOutputStream sw = new DataOutputStream(strings);
+        int[] codeStr = new int[rows.size()], descStr = new int[rows.size()];
+        TreeMap<String, List<Integer>> tokens = new TreeMap<>(IcdIndex::compareUtf8);
+        for (int id = 0; id < rows.size(); id++) {
+            codeStr[id] = writeString(sw, strings, rows.get(id)[0]);
+            descStr[id] = writeString(sw, strings, rows.get(id)[1]);
+            List<String> words = tokenize(rows.get(id)[0] + " " + rows.get(id)[1]);
+            for (String w : words) {
+                List<Integer> posting = tokens.computeIfAbsent(w, k -> new ArrayList<>());
+                if (posting.isEmpty() || posting.get(posting.size() - 1) != id) posting.add(id);
+            }
+        }
+        int[] tokenStr = new int[tokens.size()];
+        int t = 0;
+        for (String token : tokens.keySet()) tokenStr[t++] = writeString(sw, strings, token);
+
+        int postingTotal = tokens.values().stream().mapToInt(List::size).sum();
+        int codesOff = HEADER;
+        int tokensOff = codesOff + rows.size() * CODE_ENTRY;
+        int postingsOff = tokensOff + tokens.size() * TOKEN_ENTRY;
+        int stringsOff = postingsOff + postingTotal * 4;
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            for (int v : new int[] {MAGIC, VERSION, rows.size(), tokens.size(), codesOff, tokensOff, postingsOff, stringsOff}) {
+                out.writeInt(v);
+            }
+            out.writeLong(sourceStamp);
+            for (int id = 0; id < rows.size(); id++) {
+                out.writeInt(codeStr[id]);
+                out.writeInt(descStr[id]);
+            }
+            int start = 0;
+            t = 0;
+            for (List<Integer> posting : tokens.values()) {
+                out.writeInt(tokenStr[t++]);
+                out.writeInt(start);
+                out.writeInt(posting.size());
+                start += posting.size();
+            }
+            for (List<Integer> posting : tokens.values()) {
+                for (int id : posting) out.writeInt(id);
+            }
+            strings.writeTo(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int writeString(DataOutputStream sw, ByteArrayOutputStream strings, String s) throws IOException {
+        int off = strings.size();
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(b.length, 0xFFFF);
+        sw.writeShort(len);
+        sw.write(b, 0, len);
+        return off;
+    }
+
+    // Length and CRC of the source; never 0, which marks an external list
+    private static long stamp(byte[] source) {
+        CRC32 crc = new CRC32();
+        crc.update(source);
+        long s = ((long) source.length << 32) | crc.getValue();
+        return s == 0 ? 1 : s;
+    }
+
+    // Same order as the unsigned byte comparison used by search
+    private static int compareUtf8(String a, String b) {
+        return Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: IcdIndex <codes.tsv> <out.idx>");
+            System.exit(2);
+        }
+        try (Reader in = Files.newBufferedReader(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            build(in, Path.of(args[1]));
+        }
+        System.out.println("Indexed " + open(Path.of(args[1])).size() + " codes into " + args[1]);
+    }
+}
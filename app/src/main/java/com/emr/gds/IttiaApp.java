@@ -4,7 +4,7 @@ package com.emr.gds;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.collections.ListChangeListener;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -19,18 +19,20 @@ import javafx.scene.layout.*;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.UnaryOperator;
 
 public class IttiaApp extends Application {
@@ -38,19 +40,34 @@ public class IttiaApp extends Application {
     private final List<TextArea> areas = new ArrayList<>(10);
 
     // Titles for the center text areas
-    public static final String[] TEXT_AREA_TITLES = {
-            "CC>", "PI>", "ROS>", "PMH>", "S>",
-            "O>", "Physical Exam>", "A>", "P>", "Comment>"
-    };
+    public static final String[] TEXT_AREA_TITLES = NoteExport.AREA_TITLES;
 
     // Fonts
     private static final String BODY_FONT_FALLBACK = "Consolas, 'Nanum Gothic Coding', 'D2Coding', 'Noto Sans Mono', monospace";
 
+    // Specialty scope for abbreviations, e.g. -Dittia.specialty=Endocrinology
+    private static final String SPECIALTY = System.getProperty("ittia.specialty", AbbrevResolver.ANY);
+
     private ListProblemAction problemAction;
     private ListButtonAction buttonAction;
 
     private Connection dbConn;
-    private Map<String, String> abbrevMap = new HashMap<>();
+    private AbbrevResolver abbrevResolver;
+
+    private TermChecker termChecker;
+
+    // ICD-10 suggestions for the problem list (null if the index could not be opened)
+    private IcdIndex icdIndex;
+
+    // Abbreviation replication (only when -Dittia.sync.dir is set)
+    private static final long SYNC_INTERVAL_SECONDS = 30;
+    private ScheduledExecutorService syncExecutor;
+
+    // Cross-area undo/redo, e.g. -Dittia.history.maxBytes=16777216
+    private EditHistory history;
+
+    // Per-section cache so repeated Copy All only re-formats what changed
+    private final NoteExportCache exportCache = new NoteExportCache(TEXT_AREA_TITLES.length);
 
     @Override
     public void start(Stage stage) {
@@ -59,7 +76,34 @@ public class IttiaApp extends Application {
         // Initialize SQLite database for abbreviations
         initAbbrevDatabase();
 
+        // Memory-mapped ICD-10 index next to abbreviations.db
+        try {
+            icdIndex = IcdIndex.openOrBuild(Path.of(IcdIndex.INDEX_FILE));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // Medical term checker runs off the FX thread
+        termChecker = new TermChecker(TEXT_AREA_TITLES.length, this::showTermIssues);
+        termChecker.loadDictionary(abbrevResolver != null ? abbrevResolver.expansions() : List.of());
+        // New or synced abbreviations become known terms
+        if (abbrevResolver != null) {
+            abbrevResolver.setOnChange(() -> termChecker.loadDictionary(abbrevResolver.expansions()));
+        }
+
+        history = new EditHistory(new EditHistory.Target() {
+            @Override public int areaCount() { return areas.size(); }
+            @Override public String text(int area) { return areas.get(area).getText(); }
+            @Override public void replace(int area, int start, int end, String text) {
+                TextArea ta = areas.get(area);
+                ta.replaceText(start, end, text);
+                ta.positionCaret(start + text.length());
+            }
+        }, Long.getLong("ittia.history.maxBytes", EditHistory.DEFAULT_MAX_BYTES),
+                EditHistory.DEFAULT_MAX_ENTRIES, EditHistory.DEFAULT_CHECKPOINT_EVERY);
+
         problemAction = new ListProblemAction(this);
+        problemAction.getProblems().addListener((ListChangeListener<String>) c -> exportCache.problemsChanged());
         buttonAction = new ListButtonAction(this);
 
         BorderPane root = new BorderPane();
@@ -84,6 +128,11 @@ public class IttiaApp extends Application {
         // Focus first area shortly after show
         Platform.runLater(() -> areas.get(0).requestFocus());
 
+        // CDS training run (gradle :app:cdsArchive): start up fully, then exit so the archive is dumped
+        if (getParameters().getRaw().contains("--exit-after-startup")) {
+            Platform.runLater(Platform::exit);
+        }
+
         // Global accelerators
         installGlobalShortcuts(scene);
     }
@@ -92,24 +141,54 @@ public class IttiaApp extends Application {
         try {
             Class.forName("org.sqlite.JDBC");
             dbConn = DriverManager.getConnection("jdbc:sqlite:abbreviations.db");
-            Statement stmt = dbConn.createStatement();
-            stmt.execute("CREATE TABLE IF NOT EXISTS abbreviations (short TEXT PRIMARY KEY, full TEXT)");
 
-            // Insert examples if not exist
-            stmt.execute("INSERT OR IGNORE INTO abbreviations (short, full) VALUES ('c', 'hypercholesterolemia')");
-            stmt.execute("INSERT OR IGNORE INTO abbreviations (short, full) VALUES ('to', 'hypothyroidism')");
+            // Build the per-area lookup tables (a new database gets the example rows once)
+            abbrevResolver = AbbrevResolver.open(dbConn, SPECIALTY);
 
-            // Load into map
-            ResultSet rs = stmt.executeQuery("SELECT * FROM abbreviations");
-            while (rs.next()) {
-                abbrevMap.put(rs.getString("short"), rs.getString("full"));
-            }
+            // Optional replication with other workstations, e.g. -Dittia.sync.dir=//server/share/ittia-sync
+            String syncDir = System.getProperty("ittia.sync.dir");
+            if (syncDir != null && !syncDir.isBlank()) startAbbrevSync(Path.of(syncDir));
         } catch (ClassNotFoundException | SQLException e) {
             e.printStackTrace();
             // Handle error, perhaps show alert
         }
     }
 
+    /**
+     * Logs local abbreviation edits and exchanges them with the shared folder in the background.
+     * The sync thread uses its own connection, so {@link AbbrevResolver#refreshIfChanged()} sees what it applies.
+     */
+    private void startAbbrevSync(Path dir) throws SQLException {
+        try (Statement stmt = dbConn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = 5000");
+        }
+        abbrevResolver.setSync(new AbbrevSync(dbConn));
+
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "abbrev-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        syncExecutor.submit(() -> {
+            try {
+                Connection syncConn = DriverManager.getConnection("jdbc:sqlite:abbreviations.db");
+                try (Statement stmt = syncConn.createStatement()) {
+                    stmt.execute("PRAGMA busy_timeout = 5000");
+                }
+                AbbrevSync sync = new AbbrevSync(syncConn);
+                syncExecutor.scheduleWithFixedDelay(() -> {
+                    try {
+                        sync.sync(dir);
+                    } catch (IOException | SQLException e) {
+                        e.printStackTrace();
+                    }
+                }, 0, SYNC_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
     private GridPane buildCenterAreas() {
         GridPane grid = new GridPane();
         grid.setHgap(10);
@@ -130,10 +209,17 @@ public class IttiaApp extends Application {
             if (idx < TEXT_AREA_TITLES.length) {
                 ta.textProperty().addListener((obs, oldVal, newVal) -> {
                     problemAction.updateAndRedrawScratchpad(TEXT_AREA_TITLES[idx], newVal);
+                    termChecker.submit(idx, newVal);
+                    exportCache.areaChanged(idx);
                 });
             }
 
-            // Add abbreviation expansion handler
+            // Pick up abbreviation edits made by other connections when an area is entered
+            ta.focusedProperty().addListener((obs, was, is) -> {
+                if (is && abbrevResolver != null) abbrevResolver.refreshIfChanged();
+            });
+
+            // Add abbreviation expansion handler (scoped by area)
             ta.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
                 if (event.getCode() == KeyCode.SPACE) {
                     int caret = ta.getCaretPosition();
@@ -147,20 +233,38 @@ public class IttiaApp extends Application {
                         String replacement = null;
                         if (key.equals("cd")) {
                             replacement = LocalDate.now().format(DateTimeFormatter.ISO_DATE);
-                        } else {
-                            replacement = abbrevMap.get(key);
+                        } else if (abbrevResolver != null) {
+                            replacement = abbrevResolver.lookup(idx, key);
                         }
                         if (replacement != null) {
-                            ta.deleteText(start, caret);
-                            ta.insertText(start, replacement + " ");
+                            // One undo step for the whole expansion
+                            history.beginGroup();
+                            try {
+                                ta.deleteText(start, caret);
+                                ta.insertText(start, replacement + " ");
+                            } finally {
+                                history.endGroup();
+                            }
                             event.consume();
                         }
                     }
                 }
             });
 
-            // Optional: restrict control chars except tab/newline
-            ta.setTextFormatter(new TextFormatter<>(filterControlChars()));
+            // Route undo/redo to the shared history instead of the per-control one
+            ta.addEventFilter(KeyEvent.KEY_PRESSED, event -> {
+                if (!event.isShortcutDown()) return;
+                if (event.getCode() == KeyCode.Z) {
+                    if (event.isShiftDown()) redo(); else undo();
+                    event.consume();
+                } else if (event.getCode() == KeyCode.Y) {
+                    redo();
+                    event.consume();
+                }
+            });
+
+            // Optional: restrict control chars except tab/newline; every change lands in the history
+            ta.setTextFormatter(new TextFormatter<>(recordChanges(idx, filterControlChars())));
 
             ScrollPane sp = new ScrollPane(ta);
             sp.setFitToWidth(true);
@@ -198,48 +302,34 @@ public class IttiaApp extends Application {
 
     private void insertBlock(TextArea ta, String block) {
         int caret = ta.getCaretPosition();
-        ta.insertText(caret, block); // Using insertText is cleaner and fires listeners correctly
+        history.beginGroup(); // a template is one undo step
+        try {
+            ta.insertText(caret, block); // Using insertText is cleaner and fires listeners correctly
+        } finally {
+            history.endGroup();
+        }
     }
 
     public void formatCurrentArea() {
         TextArea ta = getFocusedArea();
         if (ta == null) return;
-        ta.setText(Formatter.autoFormat(ta.getText()));
+        // replaceText (not setText) so the change passes the formatter and is undoable
+        ta.replaceText(0, ta.getLength(), Formatter.autoFormat(ta.getText()));
     }
 
-    public void copyAllToClipboard() {
-        StringJoiner sj = new StringJoiner("\n\n");
-
-        // Problems -> bullet list
-        ObservableList<String> problems = problemAction.getProblems();
-        if (!problems.isEmpty()) {
-            StringBuilder pb = new StringBuilder();
-            pb.append("# Problem List (as of ")
-              .append(LocalDate.now().format(DateTimeFormatter.ISO_DATE))
-              .append(")\n");
-            for (String p : problems) pb.append("- ").append(p).append("\n");
-            sj.add(pb.toString().trim());
-        }
+    public void undo() {
+        focusArea(history.undo());
+    }
 
-        // Areas
-        for (int i = 0; i < areas.size(); i++) {
-            String txt = areas.get(i).getText().trim();
-            if (!txt.isEmpty()) {
-                String title;
-                if (i < TEXT_AREA_TITLES.length) {
-                    title = TEXT_AREA_TITLES[i];
-                    // Clean up title for final output (e.g., "CC>" becomes "CC")
-                    if (title.endsWith(">")) {
-                        title = title.substring(0, title.length() - 1);
-                    }
-                } else {
-                    title = "Area " + (i + 1); // Fallback
-                }
-                sj.add("# " + title + "\n" + txt);
-            }
-        }
+    public void redo() {
+        focusArea(history.redo());
+    }
 
-        String result = Formatter.finalizeForEMR(sj.toString());
+    public void copyAllToClipboard() {
+        List<String> texts = new ArrayList<>(areas.size());
+        for (TextArea ta : areas) texts.add(ta.getText());
+
+        String result = exportCache.export(problemAction.getProblems(), texts, LocalDate.now());
 
         ClipboardContent cc = new ClipboardContent();
         cc.putString(result);
@@ -248,6 +338,38 @@ public class IttiaApp extends Application {
         showToast("Copied all content to clipboard");
     }
 
+    public IcdIndex getIcdIndex() {
+        return icdIndex;
+    }
+
+    public void showDbManager() {
+        if (abbrevResolver == null) {
+            showToast("Abbreviation database is not available");
+            return;
+        }
+        new AbbrevManagerDialog(abbrevResolver).show(areas.isEmpty() ? null : areas.get(0).getScene().getWindow());
+    }
+
+    /**
+     * TextArea cannot style ranges, so flagged terms are listed in the area's tooltip
+     * and the border turns red while any remain.
+     */
+    private void showTermIssues(int idx, List<TermChecker.Issue> issues) {
+        if (idx >= areas.size()) return;
+        TextArea ta = areas.get(idx);
+        if (issues.isEmpty()) {
+            ta.setTooltip(null);
+            ta.setStyle("");
+            return;
+        }
+        StringJoiner sj = new StringJoiner("\n");
+        for (TermChecker.Issue is : issues) {
+            sj.add(is.word() + " -> " + String.join(", ", is.suggestions()));
+        }
+        ta.setTooltip(new Tooltip(sj.toString()));
+        ta.setStyle("-fx-text-box-border: #d9534f; -fx-focus-color: #d9534f;");
+    }
+
     private TextArea getFocusedArea() {
         for (TextArea ta : areas) {
             if (ta.isFocused()) return ta;
@@ -306,53 +428,21 @@ public class IttiaApp extends Application {
         };
     }
 
-    public static String normalizeLine(String s) {
-        return s == null ? "" : s.trim().replaceAll("\\s+", " ");
-    }
-
-    // ===== Formatting utilities =====
-    public static class Formatter {
-        /**
-         * Normalize bullets, collapse blank lines, trim trailing spaces.
-         */
-        static String autoFormat(String raw) {
-            if (raw == null || raw.isBlank()) return "";
-            String[] lines = raw.replace("\r", "").split("\n", -1);
-            StringBuilder out = new StringBuilder();
-            boolean lastBlank = false;
-            for (String line : lines) {
-                String t = line.strip();
-                // Normalize bullets to "- "
-                t = t.replaceAll("^[•·→▶▷‣⦿∘*]+\\s*", "- ");
-                t = t.replaceAll("^[-]{1,2}\\s*", "- ");
-                // collapse internal spaces
-                t = t.replaceAll("\\s+$", "");
-
-                if (t.isEmpty()) {
-                    if (!lastBlank) {
-                        out.append("\n");
-                        lastBlank = true;
-                    }
-                } else {
-                    out.append(t).append("\n");
-                    lastBlank = false;
-                }
+    private UnaryOperator<TextFormatter.Change> recordChanges(int idx, UnaryOperator<TextFormatter.Change> filter) {
+        return change -> {
+            TextFormatter.Change c = filter.apply(change);
+            if (c != null && history != null) {
+                String removed = c.getControlText().substring(c.getRangeStart(), c.getRangeEnd());
+                history.record(idx, c.getRangeStart(), removed, c.getText());
             }
-            return out.toString().strip();
-        }
+            return c;
+        };
+    }
 
-        /**
-         * Final pass for EMR export: ensure headers start with '# ' and
-         * ensure a clean single blank line between sections.
-         */
-        static String finalizeForEMR(String raw) {
-            String s = autoFormat(raw);
-            // Ensure markdown-like headers start with '# '
-            s = s.replaceAll("^(#+)([^#\n])", "$1 $2");
-            // Guarantee single blank line between sections
-            s = s.replaceAll("\n{3,}", "\n\n");
-            return s.trim();
-        }
+    @Override
+    public void stop() {
+        if (termChecker != null) termChecker.close();
+        if (syncExecutor != null) syncExecutor.shutdownNow();
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,237 @@
+// IttiaBatch.java
+package com.emr.gds;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Headless runner: reformats a directory tree of archived notes with the same
+ * {@link NoteExport#assemble} / {@link Formatter#finalizeForEMR} pass as Ctrl+Shift+C.
+ *
+ * <pre>
+ * IttiaBatch &lt;input-dir&gt; &lt;output-dir&gt; [--threads N] [--glob *.txt] [--charset UTF-8]
+ * </pre>
+ *
+ * One walker feeds a bounded queue; N virtual-thread workers map, format and write
+ * each note with a single encoded buffer. Input is decoded strictly in {@code --charset}
+ * (UTF-8 by default; e.g. x-windows-949 for legacy archives): a file that does not decode is
+ * reported as failed rather than written with replacement characters. Output is always UTF-8.
+ * The output tree mirrors the input tree. A file that fails (even with an {@link Error})
+ * is reported and skipped; if every worker has stopped, the walk is abandoned instead of blocking.
+ */
+public final class IttiaBatch {
+
+    // Files smaller than this are cheaper to read than to map
+    private static final long MAP_THRESHOLD = 16 * 1024;
+
+    // Poison pill that tells a worker to stop
+    private static final Path END = Path.of("");
+
+    // How often a blocked walker checks that workers are still alive
+    private static final long OFFER_TIMEOUT_MS = 200;
+
+    private static final String USAGE =
+            "Usage: IttiaBatch <input-dir> <output-dir> [--threads N] [--glob *.txt] [--charset UTF-8]";
+
+    private final Path inputDir;
+    private final Path outputDir;
+    private final int threads;
+    private final PathMatcher matcher;
+    private final Charset charset;
+
+    private final LongAdder files = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    IttiaBatch(Path inputDir, Path outputDir, int threads, String glob) {
+        this(inputDir, outputDir, threads, glob, StandardCharsets.UTF_8);
+    }
+
+    IttiaBatch(Path inputDir, Path outputDir, int threads, String glob, Charset charset) {
+        this.inputDir = inputDir.toAbsolutePath().normalize();
+        this.outputDir = outputDir.toAbsolutePath().normalize();
+        this.threads = threads;
+        this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        this.charset = charset;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) usage(null);
+        int threads = Runtime.getRuntime().availableProcessors();
+        String glob = "*.txt";
+        Charset charset = StandardCharsets.UTF_8;
+        for (int i = 2; i < args.length; i += 2) {
+            if (i + 1 >= args.length) usage("Missing value for " + args[i]);
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--threads" -> {
+                    try {
+                        threads = Math.max(1, Integer.parseInt(value));
+                    } catch (NumberFormatException e) {
+                        usage("Not a number for --threads: " + value);
+                    }
+                }
+                case "--glob" -> glob = value;
+                case "--charset" -> {
+                    try {
+                        charset = Charset.forName(value);
+                    } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                        usage("Unknown charset: " + value);
+                    }
+                }
+                default -> usage("Unknown option: " + args[i]);
+            }
+        }
+
+        IttiaBatch batch = new IttiaBatch(Path.of(args[0]), Path.of(args[1]), threads, glob, charset);
+        if (batch.inputDir.equals(batch.outputDir)) usage("Output directory must differ from the input directory");
+        System.exit(batch.run() ? 0 : 1);
+    }
+
+    private static void usage(String problem) {
+        if (problem != null) System.err.println(problem);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    /**
+     * Processes every matching file; returns false if any file failed.
+     */
+    boolean run() throws IOException, InterruptedException {
+        if (!Files.isDirectory(inputDir)) {
+            throw new IOException("Not a directory: " + inputDir);
+        }
+        // Every file would be skipped as "output nested inside input"
+        if (outputDir.equals(inputDir)) {
+            throw new IOException("Output directory must differ from the input directory: " + outputDir);
+        }
+        Files.createDirectories(outputDir);
+
+        BlockingQueue<Path> queue = new ArrayBlockingQueue<>(threads * 4);
+        long t0 = System.nanoTime();
+
+        List<Future<?>> running = new ArrayList<>(threads);
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < threads; i++) {
+                running.add(workers.submit(() -> drain(queue)));
+            }
+            try (Stream<Path> walk = Files.walk(inputDir)) {
+                for (Path p : (Iterable<Path>) walk::iterator) {
+                    if (p.startsWith(outputDir)) continue; // output nested inside input
+                    if (Files.isRegularFile(p) && matcher.matches(p.getFileName())) {
+                        if (!enqueue(queue, p, running)) {
+                            System.err.println("All workers stopped; abandoning the walk at " + p);
+                            break;
+                        }
+                    }
+                }
+            } finally {
+                for (int i = 0; i < threads; i++) {
+                    if (!enqueue(queue, END, running)) break;
+                }
+            }
+        } // close() waits for the workers
+
+        for (Future<?> f : running) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                failures.increment();
+                System.err.println("Worker died: " + e.getCause());
+            }
+        }
+
+        report(System.nanoTime() - t0);
+        return failures.sum() == 0;
+    }
+
+    /**
+     * Blocks while workers are behind, but returns false once none are left to take from the queue.
+     */
+    private static boolean enqueue(BlockingQueue<Path> queue, Path p, List<Future<?>> workers)
+            throws InterruptedException {
+        while (!queue.offer(p, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            if (workers.stream().allMatch(Future::isDone)) return false;
+        }
+        return true;
+    }
+
+    private Void drain(BlockingQueue<Path> queue) throws InterruptedException {
+        for (Path p = queue.take(); p != END; p = queue.take()) {
+            try {
+                process(p);
+                files.increment();
+            } catch (Throwable e) {
+                // Errors too (e.g. a missing class): one bad file must not take the worker down
+                failures.increment();
+                System.err.println("FAILED " + p + ": " + e);
+            }
+        }
+        return null;
+    }
+
+    private void process(Path src) throws IOException {
+        String raw = read(src);
+        NoteExport.Parts parts = NoteExport.parse(raw);
+        String result = NoteExport.assemble(parts.problems(), parts.areaTexts(), parts.asOf());
+
+        Path dst = outputDir.resolve(inputDir.relativize(src).toString());
+        Files.createDirectories(dst.getParent());
+        ByteBuffer out = StandardCharsets.UTF_8.encode(result + "\n");
+        bytesOut.add(out.remaining());
+        try (FileChannel ch = FileChannel.open(dst,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) ch.write(out);
+        }
+    }
+
+    private String read(Path src) throws IOException {
+        try (FileChannel ch = FileChannel.open(src, StandardOpenOption.READ)) {
+            long size = ch.size();
+            bytesIn.add(size);
+            ByteBuffer buf = size < MAP_THRESHOLD
+                    ? ByteBuffer.wrap(Files.readAllBytes(src))
+                    : ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            // Same strict decoder for both paths: bad input fails the file instead of becoming U+FFFD
+            return decoder().decode(buf).toString();
+        }
+    }
+
+    private CharsetDecoder decoder() {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    private void report(long elapsedNanos) {
+        double secs = Math.max(elapsedNanos, 1) / 1e9;
+        double mbIn = bytesIn.sum() / (1024.0 * 1024.0);
+        System.out.printf("Processed %d file(s), %d failed, %d thread(s)%n", files.sum(), failures.sum(), threads);
+        System.out.printf("Read %.2f MB, wrote %.2f MB in %.3f s -> %.2f MB/s%n",
+                mbIn, bytesOut.sum() / (1024.0 * 1024.0), secs, mbIn / secs);
+    }
+}
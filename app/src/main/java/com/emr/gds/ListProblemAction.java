@@ -5,12 +5,14 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
+import javafx.geometry.Side;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 
 import java.util.*;
+import java.util.regex.Pattern;
 
 public class ListProblemAction {
 
@@ -25,6 +27,10 @@ public class ListProblemAction {
 
     private ListView<String> problemList;
 
+    private static final int MAX_ICD_SUGGESTIONS = 8;
+    // Problem already carries a code, e.g. "Prediabetes (R73.03)"
+    private static final Pattern ICD_SUFFIX = Pattern.compile("\\([A-Z][0-9][0-9A-Z](\\.[0-9A-Z]{1,4})?\\)$");
+
     private TextArea scratchpadArea; // Promoted to a field
     private final LinkedHashMap<String, String> scratchpadEntries = new LinkedHashMap<>();
 
@@ -46,12 +52,13 @@ public class ListProblemAction {
         TextField input = new TextField();
         input.setPromptText("Add problem and press Enter");
         input.setOnAction(e -> {
-            String text = IttiaApp.normalizeLine(input.getText());
+            String text = Formatter.normalizeLine(input.getText());
             if (!text.isBlank()) {
                 problems.add(text);
                 input.clear();
             }
         });
+        installIcdSuggestions(input);
 
         Button remove = new Button("Remove Selected");
         remove.setOnAction(e -> {
@@ -86,6 +93,39 @@ public class ListProblemAction {
         return box;
     }
 
+    // ICD-10 suggestions: the index lookup is fast enough to run on every keystroke
+    private void installIcdSuggestions(TextField input) {
+        IcdIndex index = app.getIcdIndex();
+        if (index == null) return;
+
+        ContextMenu menu = new ContextMenu();
+        input.textProperty().addListener((obs, oldVal, newVal) -> {
+            String typed = newVal == null ? "" : newVal.strip();
+            if (typed.length() < 3 || ICD_SUFFIX.matcher(typed).find()) {
+                menu.hide();
+                return;
+            }
+            List<MenuItem> items = new ArrayList<>();
+            for (IcdIndex.Code c : index.search(typed, MAX_ICD_SUGGESTIONS)) {
+                MenuItem mi = new MenuItem(c.code() + "  " + c.description());
+                mi.setOnAction(e -> {
+                    input.setText(Formatter.normalizeLine(typed) + " (" + c.code() + ")");
+                    input.positionCaret(input.getLength());
+                });
+                items.add(mi);
+            }
+            if (items.isEmpty()) {
+                menu.hide();
+            } else {
+                menu.getItems().setAll(items);
+                if (!menu.isShowing()) menu.show(input, Side.BOTTOM, 0, 0);
+            }
+        });
+        input.focusedProperty().addListener((obs, was, is) -> {
+            if (!is) menu.hide();
+        });
+    }
+
     public void updateAndRedrawScratchpad(String title, String newText) {
         String trimmedText = newText.trim();
 
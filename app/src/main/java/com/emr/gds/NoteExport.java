@@ -0,0 +1,169 @@
+// NoteExport.java
+package com.emr.gds;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the EMR export document from the problem list and the center areas.
+ * Shared by the clipboard export in {@link IttiaApp} and the headless {@link IttiaBatch} runner,
+ * so both produce byte-identical output.
+ */
+public final class NoteExport {
+
+    // Titles for the center text areas (here rather than in IttiaApp so the batch runner needs no JavaFX)
+    public static final String[] AREA_TITLES = {
+            "CC>", "PI>", "ROS>", "PMH>", "S>",
+            "O>", "Physical Exam>", "A>", "P>", "Comment>"
+    };
+
+    static final String PROBLEM_HEADER = "# Problem List";
+
+    private static final Pattern PROBLEM_HEADER_DATE =
+            Pattern.compile("^#\\s*Problem List(?:\\s*\\(as of (\\d{4}-\\d{2}-\\d{2})\\))?\\s*$");
+
+    private NoteExport() {}
+
+    /**
+     * Note content split into the problem list and one text per center area.
+     * {@code asOf} is null when the note carries no problem-list date.
+     */
+    public record Parts(List<String> problems, List<String> areaTexts, LocalDate asOf) {}
+
+    // ===== Export =====
+
+    /**
+     * Same output as Ctrl+Shift+C: problem list first, then every non-empty area under its title.
+     */
+    public static String assemble(List<String> problems, List<String> areaTexts, LocalDate asOf) {
+        StringJoiner sj = new StringJoiner("\n\n");
+
+        String pb = problemBlock(problems, asOf);
+        if (pb != null) sj.add(pb);
+
+        for (int i = 0; i < areaTexts.size(); i++) {
+            String block = sectionBlock(i, areaTexts.get(i));
+            if (block != null) sj.add(block);
+        }
+
+        return Formatter.finalizeForEMR(sj.toString());
+    }
+
+    /** Problems -> bullet list, or null when there are none. A null {@code asOf} leaves the date out. */
+    static String problemBlock(List<String> problems, LocalDate asOf) {
+        if (problems.isEmpty()) return null;
+        StringBuilder pb = new StringBuilder(PROBLEM_HEADER);
+        if (asOf != null) pb.append(" (as of ").append(asOf.format(DateTimeFormatter.ISO_DATE)).append(")");
+        pb.append("\n");
+        for (String p : problems) pb.append("- ").append(p).append("\n");
+        return pb.toString().trim();
+    }
+
+    /** "# Title\ntext" for one area, or null when the area is blank. */
+    static String sectionBlock(int index, String text) {
+        String txt = text == null ? "" : text.trim();
+        if (txt.isEmpty()) return null;
+        return "# " + exportTitle(index) + "\n" + txt;
+    }
+
+    /**
+     * Clean up title for final output (e.g., "CC>" becomes "CC").
+     */
+    static String exportTitle(int index) {
+        if (index >= AREA_TITLES.length) return "Area " + (index + 1); // Fallback
+        String title = AREA_TITLES[index];
+        return title.endsWith(">") ? title.substring(0, title.length() - 1) : title;
+    }
+
+    // ===== Import =====
+
+    /**
+     * Splits an archived note back into problems and areas. Accepts both the exported form
+     * ("# CC", "# Problem List (as of ...)") and the raw area form ("CC> text").
+     * Raw "Title>" headers only count when the note has no exported headers, so body lines
+     * such as "P> ..." inside an exported section stay where they are and export round-trips.
+     * Text before the first recognised header goes to the last area (Comment).
+     */
+    public static Parts parse(String raw) {
+        String[] titles = AREA_TITLES;
+        List<StringBuilder> areas = new ArrayList<>(titles.length);
+        for (int i = 0; i < titles.length; i++) areas.add(new StringBuilder());
+        List<String> problems = new ArrayList<>();
+        LocalDate asOf = null;
+
+        String[] lines = raw.replace("\r", "").split("\n", -1);
+        boolean exportedForm = false;
+        for (String line : lines) {
+            if (exportedHeader(line) >= 0 || PROBLEM_HEADER_DATE.matcher(line.strip()).matches()) {
+                exportedForm = true;
+                break;
+            }
+        }
+
+        // Longest titles first so "PI>" is never taken for "P>"
+        Integer[] order = new Integer[titles.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> titles[b].length() - titles[a].length());
+
+        int current = titles.length - 1;
+        boolean inProblems = false;
+        for (String line : lines) {
+            Matcher pm = PROBLEM_HEADER_DATE.matcher(line.strip());
+            if (pm.matches()) {
+                inProblems = true;
+                if (pm.group(1) != null) {
+                    try {
+                        asOf = LocalDate.parse(pm.group(1));
+                    } catch (DateTimeParseException ignored) {
+                        // leave undated
+                    }
+                }
+                continue;
+            }
+
+            int header = exportedHeader(line);
+            String rest = "";
+            if (!exportedForm) {
+                for (int i : order) {
+                    if (line.startsWith(titles[i])) {
+                        header = i;
+                        rest = line.substring(titles[i].length()).strip();
+                        break;
+                    }
+                }
+            }
+
+            if (header >= 0) {
+                inProblems = false;
+                current = header;
+                if (!rest.isEmpty()) areas.get(current).append(rest).append('\n');
+            } else if (inProblems) {
+                String p = Formatter.normalizeLine(line.replaceFirst("^\\s*-\\s*", ""));
+                if (!p.isEmpty()) problems.add(p);
+            } else {
+                areas.get(current).append(line).append('\n');
+            }
+        }
+
+        List<String> areaTexts = new ArrayList<>(areas.size());
+        for (StringBuilder sb : areas) areaTexts.add(sb.toString());
+        return new Parts(problems, areaTexts, asOf);
+    }
+
+    /** Area index for an exported "# Title" line, or -1. */
+    private static int exportedHeader(String line) {
+        String s = line.strip();
+        if (!s.startsWith("#")) return -1;
+        for (int i = 0; i < AREA_TITLES.length; i++) {
+            if (s.equalsIgnoreCase("# " + exportTitle(i))) return i;
+        }
+        return -1;
+    }
+}
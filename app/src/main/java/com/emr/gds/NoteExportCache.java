@@ -0,0 +1,86 @@
+// NoteExportCache.java
+package com.emr.gds;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * Incremental version of {@link NoteExport#assemble} for repeated Ctrl+Shift+C.
+ * <p>
+ * Each area and the problem list carry a version counter, bumped by their change listeners.
+ * A section is re-formatted only when its version moved since the last export; clean sections
+ * are concatenated from cache. With nothing dirty the previous document is returned as is.
+ * <p>
+ * Joining already-formatted sections and running {@link Formatter#finishForEMR} gives
+ * the same text as formatting the whole joined document, because every section is trimmed and
+ * starts with a header line. Not thread-safe: used from the FX thread only.
+ */
+public class NoteExportCache {
+
+    private final long[] areaVersions;
+    private final long[] builtVersions;
+    private final String[] sections; // formatted block, or null for an empty area
+
+    private long problemsVersion = 1;
+    private long builtProblemsVersion;
+    private LocalDate builtDate;
+    private String problemSection;
+
+    private String document;
+
+    public NoteExportCache(int areaCount) {
+        this.areaVersions = new long[areaCount];
+        this.builtVersions = new long[areaCount];
+        this.sections = new String[areaCount];
+        Arrays.fill(areaVersions, 1); // everything starts dirty
+    }
+
+    public void areaChanged(int index) {
+        if (index >= 0 && index < areaVersions.length) areaVersions[index]++;
+    }
+
+    public void problemsChanged() {
+        problemsVersion++;
+    }
+
+    /**
+     * Same result as {@link NoteExport#assemble}, re-formatting only the sections that changed.
+     * A null {@code asOf} exports the problem list undated.
+     */
+    public String export(List<String> problems, List<String> areaTexts, LocalDate asOf) {
+        boolean dirty = false;
+
+        if (builtProblemsVersion != problemsVersion || !Objects.equals(asOf, builtDate)) {
+            problemSection = format(NoteExport.problemBlock(problems, asOf));
+            builtProblemsVersion = problemsVersion;
+            builtDate = asOf;
+            dirty = true;
+        }
+
+        int n = Math.min(areaTexts.size(), sections.length);
+        for (int i = 0; i < n; i++) {
+            if (builtVersions[i] != areaVersions[i]) {
+                sections[i] = format(NoteExport.sectionBlock(i, areaTexts.get(i)));
+                builtVersions[i] = areaVersions[i];
+                dirty = true;
+            }
+        }
+
+        if (!dirty && document != null) return document;
+
+        StringJoiner sj = new StringJoiner("\n\n");
+        if (problemSection != null) sj.add(problemSection);
+        for (int i = 0; i < n; i++) {
+            if (sections[i] != null) sj.add(sections[i]);
+        }
+        document = Formatter.finishForEMR(sj.toString());
+        return document;
+    }
+
+    private static String format(String block) {
+        return block == null ? null : Formatter.autoFormat(block);
+    }
+}
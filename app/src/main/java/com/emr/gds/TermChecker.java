@@ -0,0 +1,220 @@
+// TermChecker.java
+package com.emr.gds;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Background term checker for the center areas.
+ * <p>
+ * {@link #submit} only stores the latest text and wakes a virtual-thread worker, so typing never
+ * waits. Each area has at most one worker at a time; bursts of keystrokes collapse into one pass
+ * over the newest text. Paragraphs (lines) that did not change reuse their cached results.
+ * Results for all areas are handed to the FX thread in one {@link Platform#runLater} batch.
+ * <p>
+ * Only likely misspellings of known terms are reported: an unknown word with no dictionary term
+ * within one edit (a name, plain English, an acronym) is left alone.
+ */
+public class TermChecker implements AutoCloseable {
+
+    /** A flagged word at [start, end) of the area text. */
+    public record Issue(int start, int end, String word, List<String> suggestions) {
+        Issue shift(int offset) {
+            return new Issue(start + offset, end + offset, word, suggestions);
+        }
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final BiConsumer<Integer, List<Issue>> sink;
+    private volatile TermDictionary dictionary;
+
+    // Newest loadDictionary call; an older build that finishes late is dropped
+    private final AtomicLong loadGeneration = new AtomicLong();
+
+    // Per area: newest unchecked text, worker-running flag, paragraph -> issues (paragraph-relative)
+    private final AtomicReference<String>[] pending;
+    private final AtomicBoolean[] running;
+    private final Map<String, List<Issue>>[] paragraphCache;
+
+    // Per area, written by its worker: the dictionary the cache was built with and the last text checked
+    private final TermDictionary[] cachedWith;
+    private final AtomicReference<String>[] lastChecked;
+
+    // Results waiting for the FX thread
+    private final Map<Integer, List<Issue>> outbox = new HashMap<>();
+    private boolean flushScheduled;
+
+    /**
+     * @param sink receives (area index, issues) on the FX thread
+     */
+    @SuppressWarnings("unchecked")
+    public TermChecker(int areaCount, BiConsumer<Integer, List<Issue>> sink) {
+        this.sink = sink;
+        this.pending = new AtomicReference[areaCount];
+        this.running = new AtomicBoolean[areaCount];
+        this.paragraphCache = new Map[areaCount];
+        this.cachedWith = new TermDictionary[areaCount];
+        this.lastChecked = new AtomicReference[areaCount];
+        for (int i = 0; i < areaCount; i++) {
+            pending[i] = new AtomicReference<>();
+            running[i] = new AtomicBoolean();
+            paragraphCache[i] = new HashMap<>();
+            lastChecked[i] = new AtomicReference<>();
+        }
+    }
+
+    /**
+     * Builds the dictionary in the background; text submitted before it is ready is checked afterwards.
+     * Call again when the abbreviations change: the areas are then re-checked against the new vocabulary.
+     */
+    public void loadDictionary(Collection<String> extraPhrases) {
+        List<String> copy = List.copyOf(extraPhrases);
+        long generation = loadGeneration.incrementAndGet();
+        executor.submit(() -> {
+            TermDictionary built;
+            try {
+                built = TermDictionary.build(copy);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return;
+            }
+            synchronized (loadGeneration) {
+                if (generation != loadGeneration.get()) return;
+                dictionary = built;
+            }
+            for (int i = 0; i < pending.length; i++) {
+                String last = lastChecked[i].get();
+                if (last != null) pending[i].compareAndSet(null, last);
+                schedule(i);
+            }
+        });
+    }
+
+    /**
+     * Queues {@code text} of area {@code index} for checking. Cheap; safe to call on every change.
+     */
+    public void submit(int index, String text) {
+        pending[index].set(text);
+        schedule(index);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // ===== Worker =====
+
+    private void schedule(int index) {
+        if (dictionary == null || pending[index].get() == null) return;
+        if (running[index].compareAndSet(false, true)) {
+            executor.submit(() -> drain(index));
+        }
+    }
+
+    private void drain(int index) {
+        try {
+            for (String text = pending[index].getAndSet(null); text != null; text = pending[index].getAndSet(null)) {
+                publish(index, check(index, text));
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            running[index].set(false);
+        }
+        // A submit may have slipped in after the last getAndSet
+        schedule(index);
+    }
+
+    private List<Issue> check(int index, String text) {
+        TermDictionary dict = dictionary;
+        // Cached results are only valid for the dictionary that produced them
+        Map<String, List<Issue>> oldCache = cachedWith[index] == dict ? paragraphCache[index] : Map.of();
+        cachedWith[index] = dict;
+        lastChecked[index].set(text);
+        Map<String, List<Issue>> newCache = new HashMap<>();
+        List<Issue> issues = new ArrayList<>();
+
+        int offset = 0;
+        while (offset <= text.length()) {
+            int nl = text.indexOf('\n', offset);
+            int end = nl < 0 ? text.length() : nl;
+            String paragraph = text.substring(offset, end);
+
+            List<Issue> local = newCache.get(paragraph);
+            if (local == null) local = oldCache.get(paragraph);
+            if (local == null) local = checkParagraph(dict, paragraph);
+            newCache.put(paragraph, local);
+            for (Issue is : local) issues.add(is.shift(offset));
+
+            offset = end + 1;
+        }
+        // Keep only paragraphs that still exist
+        paragraphCache[index] = newCache;
+        return issues;
+    }
+
+    static List<Issue> checkParagraph(TermDictionary dict, String p) {
+        List<Issue> out = new ArrayList<>(0);
+        int start = -1;
+        boolean skip = false;
+        for (int i = 0; i <= p.length(); i++) {
+            char c = i < p.length() ? p.charAt(i) : ' ';
+            boolean latin = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            if (latin) {
+                if (start < 0) {
+                    start = i;
+                    skip = i > 0 && (p.charAt(i - 1) == ':' || Character.isLetterOrDigit(p.charAt(i - 1)));
+                } else if (Character.isUpperCase(c)) {
+                    skip = true; // acronyms and mixed case (TSH, HbA1c)
+                }
+            } else if (start >= 0) {
+                if (Character.isLetterOrDigit(c)) skip = true; // glued to digits or other scripts
+                else {
+                    if (!skip && i - start >= TermDictionary.MIN_LENGTH) {
+                        String word = p.substring(start, i).toLowerCase(Locale.ROOT);
+                        if (!dict.contains(word)) {
+                            List<String> sugg = dict.suggest(word);
+                            if (!sugg.isEmpty()) out.add(new Issue(start, i, p.substring(start, i), sugg));
+                        }
+                    }
+                    start = -1;
+                }
+            }
+        }
+        return out;
+    }
+
+    // ===== Delivery =====
+
+    private void publish(int index, List<Issue> issues) {
+        synchronized (outbox) {
+            outbox.put(index, issues);
+            if (flushScheduled) return;
+            flushScheduled = true;
+        }
+        Platform.runLater(this::flush);
+    }
+
+    private void flush() {
+        Map<Integer, List<Issue>> batch;
+        synchronized (outbox) {
+            batch = new HashMap<>(outbox);
+            outbox.clear();
+            flushScheduled = false;
+        }
+        batch.forEach(sink);
+    }
+}
@@ -0,0 +1,158 @@
+// TermDictionary.java
+package com.emr.gds;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable medical vocabulary for the term checker.
+ * <p>
+ * Suggestions come from a SymSpell-style index of single-character deletions, so finding every
+ * term within one edit is a handful of hash lookups instead of a scan. The index also keys every
+ * word itself, so an exact membership test is one lookup in the same map.
+ */
+public final class TermDictionary {
+
+    static final String BUNDLED_TERMS = "/text/medical_terms.txt";
+
+    // Words shorter than this are never checked or suggested
+    static final int MIN_LENGTH = 4;
+
+    private static final int MAX_SUGGESTIONS = 3;
+
+    private final String[] words;
+    private final Map<String, int[]> deletes;
+
+    private TermDictionary(Collection<String> terms) {
+        Set<String> sorted = new TreeSet<>();
+        for (String t : terms) {
+            for (String w : tokenize(t)) sorted.add(w);
+        }
+        this.words = sorted.toArray(new String[0]);
+
+        Map<String, List<Integer>> idx = new HashMap<>();
+        for (int id = 0; id < words.length; id++) {
+            String w = words[id];
+            idx.computeIfAbsent(w, k -> new ArrayList<>(1)).add(id);
+            for (String d : deletions(w)) {
+                idx.computeIfAbsent(d, k -> new ArrayList<>(2)).add(id);
+            }
+        }
+        // Pack the postings into int[] to keep the index compact
+        this.deletes = new HashMap<>(idx.size() * 4 / 3 + 1);
+        for (Map.Entry<String, List<Integer>> e : idx.entrySet()) {
+            deletes.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).distinct().toArray());
+        }
+    }
+
+    /**
+     * Builds from the bundled term list plus any extra phrases (e.g. abbreviation expansions).
+     */
+    public static TermDictionary build(Collection<String> extraPhrases) throws IOException {
+        List<String> terms = new ArrayList<>(extraPhrases);
+        try (InputStream in = TermDictionary.class.getResourceAsStream(BUNDLED_TERMS)) {
+            if (in != null) {
+                BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                for (String line = r.readLine(); line != null; line = r.readLine()) {
+                    if (!line.isBlank() && !line.startsWith("#")) terms.add(line);
+                }
+            }
+        }
+        return new TermDictionary(terms);
+    }
+
+    static TermDictionary of(Collection<String> terms) {
+        return new TermDictionary(terms);
+    }
+
+    public int size() {
+        return words.length;
+    }
+
+    /**
+     * True if {@code word} (lower case) is in the vocabulary.
+     */
+    public boolean contains(String word) {
+        // The key may also be a deletion of a longer word; the word's own id is among the postings if present
+        int[] ids = deletes.get(word);
+        if (ids == null) return false;
+        for (int id : ids) {
+            if (words[id].equals(word)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Known terms within one edit (insert, delete, substitute, transpose) of {@code word}, alphabetically.
+     */
+    public List<String> suggest(String word) {
+        Set<Integer> candidates = new LinkedHashSet<>();
+        collect(word, candidates);
+        for (String d : deletions(word)) collect(d, candidates);
+
+        List<String> out = new ArrayList<>();
+        for (int id : candidates) {
+            String w = words[id];
+            if (!w.equals(word) && withinOneEdit(word, w)) out.add(w);
+        }
+        out.sort(null);
+        return out.size() > MAX_SUGGESTIONS ? out.subList(0, MAX_SUGGESTIONS) : out;
+    }
+
+    // ===== Helpers =====
+
+    /** Lower-cased plain-Latin words long enough to check. */
+    static List<String> tokenize(String phrase) {
+        List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= phrase.length(); i++) {
+            char c = i < phrase.length() ? phrase.charAt(i) : ' ';
+            boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            if (letter && start < 0) start = i;
+            if (!letter && start >= 0) {
+                if (i - start >= MIN_LENGTH) out.add(phrase.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    private void collect(String key, Set<Integer> into) {
+        int[] ids = deletes.get(key);
+        if (ids != null) for (int id : ids) into.add(id);
+    }
+
+    private static String[] deletions(String w) {
+        String[] out = new String[w.length()];
+        for (int i = 0; i < w.length(); i++) {
+            out[i] = w.substring(0, i) + w.substring(i + 1);
+        }
+        return out;
+    }
+
+    static boolean withinOneEdit(String a, String b) {
+        int la = a.length(), lb = b.length();
+        if (Math.abs(la - lb) > 1) return false;
+        int i = 0;
+        while (i < Math.min(la, lb) && a.charAt(i) == b.charAt(i)) i++;
+        if (la == lb) {
+            if (a.regionMatches(i + 1, b, i + 1, la - i - 1)) return true;      // substitution
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                    && a.regionMatches(i + 2, b, i + 2, la - i - 2);            // transposition
+        }
+        return la > lb ? a.regionMatches(i + 1, b, i, lb - i)                   // deletion
+                       : b.regionMatches(i + 1, a, i, la - i);                  // insertion
+    }
+}
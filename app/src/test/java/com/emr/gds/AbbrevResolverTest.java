@@ -0,0 +1,93 @@
+package com.emr.gds;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AbbrevResolverTest {
+    private static final String ANY = AbbrevResolver.ANY;
+    private static final int CC = area("CC>");
+    private static final int A = area("A>");
+    private static final int P = area("P>");
+
+    private Connection conn;
+
+    private static int area(String title) {
+        return Arrays.asList(IttiaApp.TEXT_AREA_TITLES).indexOf(title);
+    }
+
+    @BeforeEach void setUp() throws Exception {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+    }
+
+    @AfterEach void tearDown() throws Exception {
+        conn.close();
+    }
+
+    @Test void testFallbackOrder() throws Exception {
+        AbbrevResolver.ensureSchema(conn);
+        AbbrevResolver r = new AbbrevResolver(conn, "endo");
+        r.put("c", "global", ANY, ANY);
+        r.put("c", "specialty", ANY, "endo");
+        r.put("c", "area", "A>", ANY);
+        r.put("c", "area+specialty", "A>", "endo");
+        r.put("c", "other specialty", "P>", "cardio");
+
+        assertEquals("area+specialty", r.lookup(A, "c"));
+        assertEquals("specialty", r.lookup(CC, "c"));
+        assertEquals("specialty", r.lookup(P, "c"));
+
+        // A fresh load folds the same tables as the incremental edits
+        AbbrevResolver fresh = new AbbrevResolver(conn, "endo");
+        for (int i = 0; i < IttiaApp.TEXT_AREA_TITLES.length; i++) {
+            assertEquals(fresh.lookup(i, "c"), r.lookup(i, "c"));
+        }
+    }
+
+    @Test void testRemoveFallsThrough() throws Exception {
+        AbbrevResolver.ensureSchema(conn);
+        AbbrevResolver r = new AbbrevResolver(conn, "endo");
+        r.put("to", "global", ANY, ANY);
+        r.put("to", "specialty", ANY, "endo");
+        r.put("to", "area", "A>", ANY);
+        r.put("to", "area+specialty", "A>", "endo");
+
+        r.remove("to", "A>", "endo");
+        assertEquals("area", r.lookup(A, "to"));
+        r.remove("to", "A>", ANY);
+        assertEquals("specialty", r.lookup(A, "to"));
+        r.remove("to", ANY, "endo");
+        assertEquals("global", r.lookup(A, "to"));
+        assertEquals("global", r.lookup(CC, "to"));
+        r.remove("to", ANY, ANY);
+        assertNull(r.lookup(A, "to"));
+        assertNull(r.lookup(CC, "to"));
+        assertTrue(r.entries().isEmpty());
+    }
+
+    @Test void testMigratesOldTable() throws Exception {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE abbreviations (short TEXT PRIMARY KEY, full TEXT)");
+            stmt.execute("INSERT INTO abbreviations VALUES ('c', 'hypercholesterolemia'), ('to', 'hypothyroidism')");
+        }
+        AbbrevResolver.ensureSchema(conn);
+        AbbrevResolver.ensureSchema(conn); // second run is a no-op
+
+        AbbrevResolver r = new AbbrevResolver(conn, ANY);
+        assertEquals(2, r.entries().size());
+        assertEquals(new AbbrevResolver.Entry("c", "hypercholesterolemia", ANY, ANY), r.entries().get(0));
+        assertEquals("hypothyroidism", r.lookup(P, "to"));
+
+        // Same key in another scope is now allowed
+        r.put("c", "chest pain", "CC>", ANY);
+        assertEquals("chest pain", r.lookup(CC, "c"));
+        assertEquals("hypercholesterolemia", r.lookup(A, "c"));
+    }
+}
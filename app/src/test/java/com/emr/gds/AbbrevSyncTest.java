@@ -0,0 +1,133 @@
+package com.emr.gds;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AbbrevSyncTest {
+    @TempDir Path tmp;
+
+    // Shared fake wall clock so the test decides which write is newer
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    private Connection connA, connB;
+    private AbbrevResolver resolverA, resolverB;
+    private AbbrevSync syncA, syncB;
+    private Path shared;
+
+    @BeforeEach void setUp() throws Exception {
+        shared = tmp.resolve("shared");
+        connA = DriverManager.getConnection("jdbc:sqlite:" + tmp.resolve("a.db"));
+        connB = DriverManager.getConnection("jdbc:sqlite:" + tmp.resolve("b.db"));
+        syncA = new AbbrevSync(connA, now::get);
+        syncB = new AbbrevSync(connB, now::get);
+        resolverA = new AbbrevResolver(connA, AbbrevResolver.ANY);
+        resolverB = new AbbrevResolver(connB, AbbrevResolver.ANY);
+        resolverA.setSync(syncA);
+        resolverB.setSync(syncB);
+    }
+
+    @AfterEach void tearDown() throws Exception {
+        connA.close();
+        connB.close();
+    }
+
+    private static String full(Connection conn, String key) throws Exception {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT full FROM abbreviations WHERE short = ? AND area = '' AND specialty = ''")) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    @Test void testChangesReplicate() throws Exception {
+        resolverA.put("dm", "diabetes mellitus", AbbrevResolver.ANY, AbbrevResolver.ANY);
+        syncA.sync(shared);
+        assertEquals(1, syncB.sync(shared));
+        assertEquals("diabetes mellitus", full(connB, "dm"));
+
+        // Nothing new: nothing is re-sent or re-applied
+        assertEquals(0, syncA.publish(shared));
+        assertEquals(0, syncB.pull(shared));
+
+        resolverB.remove("dm", AbbrevResolver.ANY, AbbrevResolver.ANY);
+        syncB.sync(shared);
+        syncA.sync(shared);
+        assertNull(full(connA, "dm"));
+    }
+
+    @Test void testConflictIsDeterministic() throws Exception {
+        resolverA.put("c", "chest pain", AbbrevResolver.ANY, AbbrevResolver.ANY);
+        now.addAndGet(10);
+        resolverB.put("c", "hypercholesterolemia", AbbrevResolver.ANY, AbbrevResolver.ANY);
+
+        // Order of exchange must not matter
+        syncB.sync(shared);
+        syncA.sync(shared);
+        syncB.sync(shared);
+
+        assertEquals("hypercholesterolemia", full(connA, "c"));
+        assertEquals("hypercholesterolemia", full(connB, "c"));
+    }
+
+    @Test void testDeletedSeedRowStaysDeletedAfterRestart() throws Exception {
+        // Two fresh workstations started the way the app starts them
+        Path dbA = tmp.resolve("seed-a.db"), dbB = tmp.resolve("seed-b.db");
+        try (Connection a = DriverManager.getConnection("jdbc:sqlite:" + dbA);
+             Connection b = DriverManager.getConnection("jdbc:sqlite:" + dbB)) {
+            AbbrevResolver seededA = AbbrevResolver.open(a, AbbrevResolver.ANY);
+            AbbrevResolver seededB = AbbrevResolver.open(b, AbbrevResolver.ANY);
+            AbbrevSync sa = new AbbrevSync(a, now::get), sb = new AbbrevSync(b, now::get);
+            seededA.setSync(sa);
+            seededB.setSync(sb);
+            assertEquals("hypercholesterolemia", full(a, "c"));
+
+            now.addAndGet(10);
+            seededB.remove("c", AbbrevResolver.ANY, AbbrevResolver.ANY);
+            sb.sync(shared);
+            sa.sync(shared);
+            assertNull(full(a, "c"));
+        }
+
+        // Restart A: the seed must not come back, and a further sync keeps both sides equal
+        try (Connection a = DriverManager.getConnection("jdbc:sqlite:" + dbA);
+             Connection b = DriverManager.getConnection("jdbc:sqlite:" + dbB)) {
+            AbbrevResolver reopened = AbbrevResolver.open(a, AbbrevResolver.ANY);
+            assertNull(reopened.lookup(0, "c"));
+            assertEquals("hypothyroidism", reopened.lookup(0, "to"));
+
+            new AbbrevSync(a, now::get).sync(shared);
+            new AbbrevSync(b, now::get).sync(shared);
+            assertNull(full(a, "c"));
+            assertNull(full(b, "c"));
+        }
+    }
+
+    @Test void testResolverSeesSyncedRows() throws Exception {
+        resolverA.put("to", "hypothyroidism", "A>", AbbrevResolver.ANY);
+        syncA.sync(shared);
+
+        // Like the app: sync on its own connection, the resolver notices via data_version
+        try (Connection syncConn = DriverManager.getConnection("jdbc:sqlite:" + tmp.resolve("b.db"))) {
+            new AbbrevSync(syncConn, now::get).sync(shared);
+        }
+        resolverB.refreshIfChanged();
+
+        int aIndex = Arrays.asList(IttiaApp.TEXT_AREA_TITLES).indexOf("A>");
+        assertEquals("hypothyroidism", resolverB.lookup(aIndex, "to"));
+        assertNull(resolverB.lookup(0, "to"));
+    }
+}
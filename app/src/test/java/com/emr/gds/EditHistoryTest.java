@@ -0,0 +1,109 @@
+package com.emr.gds;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EditHistoryTest {
+
+    /** Plain-string areas that report their own edits, like the TextFormatter hook does. */
+    private static class Areas implements EditHistory.Target {
+        final List<StringBuilder> texts = new ArrayList<>();
+        EditHistory history;
+
+        Areas(int n) {
+            for (int i = 0; i < n; i++) texts.add(new StringBuilder());
+        }
+
+        void edit(int area, int start, int end, String text) {
+            history.record(area, start, texts.get(area).substring(start, end), text);
+            texts.get(area).replace(start, end, text);
+        }
+
+        void type(int area, String s) {
+            for (char c : s.toCharArray()) edit(area, texts.get(area).length(), texts.get(area).length(), String.valueOf(c));
+        }
+
+        @Override public int areaCount() { return texts.size(); }
+        @Override public String text(int area) { return texts.get(area).toString(); }
+        @Override public void replace(int area, int start, int end, String text) { edit(area, start, end, text); }
+    }
+
+    @Test void testUndoRedoAcrossAreas() {
+        Areas a = new Areas(2);
+        a.history = new EditHistory(a);
+
+        a.type(0, "hello ");
+        a.type(1, "world");
+        assertEquals(1, a.history.undo());
+        assertEquals("", a.text(1));
+        assertEquals(0, a.history.undo());
+        assertEquals("", a.text(0));
+
+        a.history.redo();
+        a.history.redo();
+        assertEquals("hello ", a.text(0));
+        assertEquals("world", a.text(1));
+    }
+
+    @Test void testGroupIsOneStep() {
+        Areas a = new Areas(1);
+        a.history = new EditHistory(a);
+
+        a.type(0, ":c");
+        a.history.beginGroup();
+        a.edit(0, 0, 2, "");
+        a.edit(0, 0, 0, "hypercholesterolemia ");
+        a.history.endGroup();
+
+        a.history.undo();
+        assertEquals(":c", a.text(0));
+        a.history.redo();
+        assertEquals("hypercholesterolemia ", a.text(0));
+    }
+
+    @Test void testNewEditDropsRedo() {
+        Areas a = new Areas(1);
+        a.history = new EditHistory(a);
+
+        a.type(0, "one ");
+        a.type(0, "two");
+        a.history.undo();
+        a.type(0, "three");
+        assertFalse(a.history.canRedo());
+        assertEquals("one three", a.text(0));
+    }
+
+    @Test void testJumpToUsesCheckpoints() {
+        Areas a = new Areas(2);
+        a.history = new EditHistory(a, Long.MAX_VALUE, 1 << 10, 4);
+
+        List<String> seen = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            seen.add(a.text(0) + "|" + a.text(1));
+            a.edit(i % 2, 0, 0, i + "\n");
+        }
+        seen.add(a.text(0) + "|" + a.text(1));
+
+        for (long v : new long[] {3, 37, 0, 20, 40, 9}) {
+            a.history.jumpTo(v);
+            assertEquals(v, a.history.version());
+            assertEquals(seen.get((int) v), a.text(0) + "|" + a.text(1));
+        }
+    }
+
+    @Test void testMemoryLimitDropsOldest() {
+        Areas a = new Areas(1);
+        a.history = new EditHistory(a, 4 * 1024, 1 << 10, 64);
+
+        for (int i = 0; i < 500; i++) a.edit(0, 0, 0, "line " + i + "\n");
+        assertTrue(a.history.bytes() <= 4 * 1024);
+        assertTrue(a.history.oldestVersion() > 0);
+
+        while (a.history.canUndo()) a.history.undo();
+        assertTrue(a.text(0).startsWith("line " + (a.history.oldestVersion() - 1) + "\n"));
+    }
+}
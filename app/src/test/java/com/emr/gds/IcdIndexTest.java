@@ -0,0 +1,93 @@
+package com.emr.gds;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IcdIndexTest {
+    @TempDir Path tmp;
+
+    private static List<String> codes(List<IcdIndex.Code> found) {
+        return found.stream().map(IcdIndex.Code::code).toList();
+    }
+
+    @Test void testPrefixSearch() throws Exception {
+        Path file = tmp.resolve("test.idx");
+        IcdIndex.build(new StringReader(
+                "E78.00\tPure hypercholesterolemia, unspecified\n" +
+                "E78.01\tFamilial hypercholesterolemia\n" +
+                "E11.9\tType 2 diabetes mellitus without complications\n" +
+                "R73.03\tPrediabetes\n" +
+                "E041 Nontoxic single thyroid nodule\n"), file);
+        IcdIndex index = IcdIndex.open(file);
+
+        assertEquals(5, index.size());
+        assertEquals(List.of("E78.01", "E78.00"), codes(index.search("hypercholest", 10)));
+        assertEquals(List.of("E78.01"), codes(index.search("famil hyperchol", 10)));
+        assertEquals(List.of("R73.03"), codes(index.search("Prediabetes (FBS 108 mg/dL)", 10)));
+        assertEquals(List.of("E04.1"), codes(index.search("Thyroid nodule (small)", 10)));
+        assertEquals(List.of("E11.9"), codes(index.search("e11.9", 10)));
+        assertTrue(index.search("[F/U]", 10).isEmpty());
+        assertTrue(index.search("zzz", 10).isEmpty());
+    }
+
+    @Test void testBuildsFromBundledList() throws Exception {
+        Path file = tmp.resolve(IcdIndex.INDEX_FILE);
+        IcdIndex index = IcdIndex.openOrBuild(file);
+
+        assertTrue(Files.isRegularFile(file));
+        assertTrue(codes(index.search("Hypercholesterolemia [F/U]", 10)).contains("E78.00"));
+
+        // Corrupt file is rebuilt rather than trusted
+        Files.write(file, new byte[] {1, 2, 3});
+        assertTrue(IcdIndex.openOrBuild(file).size() > 0);
+    }
+
+    @Test void testResultsInRankOrder() throws Exception {
+        Path file = tmp.resolve("rank.idx");
+        IcdIndex.build(new StringReader(
+                "E11.65\tType 2 diabetes mellitus with hyperglycemia\n" +
+                "E11.9\tType 2 diabetes mellitus without complications\n" +
+                "E10.9\tType 1 diabetes mellitus without complications\n" +
+                "E11\tType 2 diabetes mellitus\n"), file);
+        IcdIndex index = IcdIndex.open(file);
+
+        // Shortest description first, ties by code, and the limit cuts the ranked list
+        assertEquals(List.of("E11", "E11.65", "E10.9", "E11.9"), codes(index.search("diabetes", 10)));
+        assertEquals(List.of("E11", "E11.65"), codes(index.search("diabetes", 2)));
+    }
+
+    @Test void testRebuildsWhenBundledListChanges() throws Exception {
+        Path file = tmp.resolve(IcdIndex.INDEX_FILE);
+        int bundledSize = IcdIndex.openOrBuild(file).size();
+
+        // Pretend the index came from an older bundled list
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(8).putLong(0, 42L), 32);
+        }
+        assertEquals(bundledSize, IcdIndex.openOrBuild(file).size());
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer stamp = ByteBuffer.allocate(8);
+            ch.read(stamp, 32);
+            assertNotEquals(42L, stamp.getLong(0));
+        }
+    }
+
+    @Test void testKeepsExternallyBuiltIndex() throws Exception {
+        Path file = tmp.resolve(IcdIndex.INDEX_FILE);
+        IcdIndex.build(new StringReader("Z99.9\tDependence on unspecified enabling machine\n"), file);
+
+        IcdIndex index = IcdIndex.openOrBuild(file);
+        assertEquals(1, index.size());
+        assertEquals(List.of("Z99.9"), codes(index.search("enabling", 10)));
+    }
+}
@@ -0,0 +1,70 @@
+package com.emr.gds;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IttiaBatchTest {
+    @TempDir Path tmp;
+
+    @Test void testFormatsTree() throws Exception {
+        Path in = tmp.resolve("in");
+        Files.createDirectories(in.resolve("2024"));
+        Files.writeString(in.resolve("a.txt"), "CC>  * cough  \nP> rest\n");
+        Files.writeString(in.resolve("2024/b.txt"), "# Problem List (as of 2024-03-01)\n- Prediabetes\n");
+        Files.writeString(in.resolve("skip.md"), "CC> ignored");
+        Path out = tmp.resolve("out");
+
+        assertTrue(new IttiaBatch(in, out, 2, "*.txt").run());
+
+        assertEquals("# CC\n- cough\n\n# P\nrest\n", Files.readString(out.resolve("a.txt")));
+        assertEquals("# Problem List (as of 2024-03-01)\n- Prediabetes\n", Files.readString(out.resolve("2024/b.txt")));
+        assertFalse(Files.exists(out.resolve("skip.md")));
+
+        // Output is stable: running again over the output changes nothing
+        Path again = tmp.resolve("again");
+        assertTrue(new IttiaBatch(out, again, 1, "*.txt").run());
+        assertEquals(Files.readString(out.resolve("a.txt")), Files.readString(again.resolve("a.txt")));
+    }
+
+    @Test void testBadEncodingFailsAtAnySize() throws Exception {
+        Path in = tmp.resolve("in");
+        Files.createDirectories(in);
+        // "CC> " followed by a byte that is never valid UTF-8; one file below the mapping threshold, one above
+        byte[] bad = {'C', 'C', '>', ' ', (byte) 0xFF, '\n'};
+        Files.write(in.resolve("small.txt"), bad);
+        byte[] big = new byte[64 * 1024];
+        Arrays.fill(big, (byte) 'x');
+        System.arraycopy(bad, 0, big, 0, bad.length);
+        Files.write(in.resolve("big.txt"), big);
+        Path out = tmp.resolve("out");
+
+        assertFalse(new IttiaBatch(in, out, 2, "*.txt").run());
+        assertFalse(Files.exists(out.resolve("small.txt")));
+        assertFalse(Files.exists(out.resolve("big.txt")));
+    }
+
+    @Test void testLegacyCharset() throws Exception {
+        Charset cp949 = Charset.forName("x-windows-949");
+        Path in = tmp.resolve("in");
+        Files.createDirectories(in);
+        Files.write(in.resolve("a.txt"), "CC> 두통\n".getBytes(cp949));
+        Path out = tmp.resolve("out");
+
+        assertTrue(new IttiaBatch(in, out, 1, "*.txt", cp949).run());
+        assertEquals("# CC\n두통\n", Files.readString(out.resolve("a.txt")));
+    }
+
+    @Test void testRejectsOutputEqualToInput() throws Exception {
+        Path in = tmp.resolve("in");
+        Files.createDirectories(in);
+        assertThrows(IOException.class, () -> new IttiaBatch(in, in.resolve("."), 1, "*.txt").run());
+    }
+}
@@ -0,0 +1,74 @@
+package com.emr.gds;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoteExportCacheTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 8, 7);
+
+    private static List<String> blankAreas() {
+        return new ArrayList<>(Collections.nCopies(IttiaApp.TEXT_AREA_TITLES.length, ""));
+    }
+
+    @Test void testMatchesFullExport() {
+        List<String> problems = new ArrayList<>(List.of("Hypercholesterolemia [F/U]", "Prediabetes"));
+        List<String> areas = blankAreas();
+        areas.set(0, "  * chest pain  \n\n\n\n-- since yesterday\r\n");
+        areas.set(7, "　\n• stable\n");
+        areas.set(8, "--continue statin\n\n");
+
+        NoteExportCache cache = new NoteExportCache(areas.size());
+        assertEquals(NoteExport.assemble(problems, areas, DAY), cache.export(problems, areas, DAY));
+    }
+
+    @Test void testOnlyDirtySectionsChange() {
+        List<String> problems = new ArrayList<>(List.of("Thyroid nodule"));
+        List<String> areas = blankAreas();
+        areas.set(1, "first");
+        NoteExportCache cache = new NoteExportCache(areas.size());
+
+        String first = cache.export(problems, areas, DAY);
+        assertSame(first, cache.export(problems, areas, DAY));
+
+        // Unreported edit stays cached; reported edit is picked up
+        areas.set(1, "second");
+        assertSame(first, cache.export(problems, areas, DAY));
+        cache.areaChanged(1);
+        assertEquals(NoteExport.assemble(problems, areas, DAY), cache.export(problems, areas, DAY));
+
+        problems.add("Prediabetes");
+        cache.problemsChanged();
+        assertEquals(NoteExport.assemble(problems, areas, DAY), cache.export(problems, areas, DAY));
+
+        areas.set(1, "");
+        cache.areaChanged(1);
+        assertEquals(NoteExport.assemble(problems, areas, DAY), cache.export(problems, areas, DAY));
+    }
+
+    @Test void testDateChangeRebuildsProblemList() {
+        List<String> problems = List.of("Prediabetes");
+        List<String> areas = blankAreas();
+        NoteExportCache cache = new NoteExportCache(areas.size());
+
+        cache.export(problems, areas, DAY);
+        assertTrue(cache.export(problems, areas, DAY.plusDays(1)).contains(DAY.plusDays(1).toString()));
+    }
+
+    @Test void testUndated() {
+        List<String> problems = List.of("Prediabetes");
+        List<String> areas = blankAreas();
+        areas.set(0, "cough");
+        NoteExportCache cache = new NoteExportCache(areas.size());
+
+        assertEquals(NoteExport.assemble(problems, areas, null), cache.export(problems, areas, null));
+        // Switching between dated and undated rebuilds the problem list
+        assertEquals(NoteExport.assemble(problems, areas, DAY), cache.export(problems, areas, DAY));
+        assertEquals(NoteExport.assemble(problems, areas, null), cache.export(problems, areas, null));
+    }
+}
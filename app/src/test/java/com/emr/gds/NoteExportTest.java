@@ -0,0 +1,63 @@
+package com.emr.gds;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoteExportTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 8, 7);
+
+    private static List<String> blankAreas() {
+        return new ArrayList<>(Collections.nCopies(NoteExport.AREA_TITLES.length, ""));
+    }
+
+    private static String reexport(String exported) {
+        NoteExport.Parts parts = NoteExport.parse(exported);
+        return NoteExport.assemble(parts.problems(), parts.areaTexts(), parts.asOf());
+    }
+
+    @Test void testRoundTrip() {
+        List<String> areas = blankAreas();
+        areas.set(0, "chest pain");
+        areas.set(6, "- lungs clear\n- no edema");
+        areas.set(8, "P> weird\ncontinue");
+        String exported = NoteExport.assemble(List.of("Hypercholesterolemia", "Prediabetes"), areas, DAY);
+
+        NoteExport.Parts parts = NoteExport.parse(exported);
+        assertEquals(List.of("Hypercholesterolemia", "Prediabetes"), parts.problems());
+        assertEquals(DAY, parts.asOf());
+        assertEquals("P> weird\ncontinue", parts.areaTexts().get(8).strip());
+        assertEquals(exported, reexport(exported));
+    }
+
+    @Test void testNumberedProblemsStayBodyText() {
+        List<String> areas = blankAreas();
+        areas.set(7, "#1 DM, controlled\n#2 HTN");
+        String exported = NoteExport.assemble(List.of(), areas, DAY);
+
+        assertEquals("# A\n#1 DM, controlled\n#2 HTN", exported);
+        assertEquals(exported, reexport(exported));
+        // A header typed without its space is still fixed at the start of the document
+        assertEquals("# Note\nbody", Formatter.finalizeForEMR("#Note\nbody"));
+    }
+
+    @Test void testRawAreaHeaders() {
+        NoteExport.Parts parts = NoteExport.parse("CC> cough\nPI> 3 days\nmore\nP> rest");
+        assertEquals("cough", parts.areaTexts().get(0).strip());
+        assertEquals("3 days\nmore", parts.areaTexts().get(1).strip());
+        assertEquals("rest", parts.areaTexts().get(8).strip());
+        assertNull(parts.asOf());
+    }
+
+    @Test void testUndatedProblemListStaysUndated() {
+        String exported = "# Problem List\n- Prediabetes\n\n# A\nstable";
+        NoteExport.Parts parts = NoteExport.parse(exported);
+        assertNull(parts.asOf());
+        assertEquals(exported, reexport(exported));
+    }
+}
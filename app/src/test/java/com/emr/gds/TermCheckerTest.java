@@ -0,0 +1,35 @@
+package com.emr.gds;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TermCheckerTest {
+    private final TermDictionary dict = TermDictionary.of(List.of("metformin", "hypothyroidism", "dyspnea"));
+
+    @Test void testFlagsNearMisses() {
+        String p = "Continue metfromin; no dispnea, hypothyroidism stable";
+        List<TermChecker.Issue> issues = TermChecker.checkParagraph(dict, p);
+
+        assertEquals(2, issues.size());
+        TermChecker.Issue first = issues.get(0);
+        assertEquals("metfromin", p.substring(first.start(), first.end()));
+        assertEquals(List.of("metformin"), first.suggestions());
+        assertEquals("dispnea", issues.get(1).word());
+    }
+
+    @Test void testSkipsAcronymsAbbrevKeysAndUnknownWords() {
+        // ":metfromin" is an abbreviation key, METFROMIN/MetFromin are acronym-like, 2metfromin is glued to a digit
+        String p = ":metfromin METFROMIN MetFromin 2metfromin metfromin2 Smith walked";
+        assertTrue(TermChecker.checkParagraph(dict, p).isEmpty());
+    }
+
+    @Test void testKeepsOriginalCase() {
+        List<TermChecker.Issue> issues = TermChecker.checkParagraph(dict, "Metfromin 500 mg");
+        assertEquals(1, issues.size());
+        assertEquals("Metfromin", issues.get(0).word());
+        assertEquals(0, issues.get(0).start());
+    }
+}
@@ -0,0 +1,44 @@
+package com.emr.gds;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TermDictionaryTest {
+    private final TermDictionary dict = TermDictionary.of(List.of(
+            "hypercholesterolemia", "hypothyroidism", "metformin", "thyroid nodule", "dyspnea"));
+
+    @Test void testContainsIsExact() {
+        assertTrue(dict.contains("metformin"));
+        assertTrue(dict.contains("nodule"));
+        // A deletion of a known word is an index key, but not a word
+        assertFalse(dict.contains("metfomin"));
+        assertFalse(dict.contains("aspirin"));
+    }
+
+    @Test void testSuggestOneEdit() {
+        assertEquals(List.of("metformin"), dict.suggest("metfromin"));  // transposition
+        assertEquals(List.of("metformin"), dict.suggest("metforrmin")); // insertion
+        assertEquals(List.of("metformin"), dict.suggest("metfomin"));   // deletion
+        assertEquals(List.of("dyspnea"), dict.suggest("dispnea"));      // substitution
+        assertEquals(List.of(), dict.suggest("metfrmn"));               // two edits
+        assertEquals(List.of(), dict.suggest("metformin"));
+    }
+
+    @Test void testWithinOneEdit() {
+        assertTrue(TermDictionary.withinOneEdit("thyroid", "thyorid"));
+        assertTrue(TermDictionary.withinOneEdit("thyroid", "thyroids"));
+        assertTrue(TermDictionary.withinOneEdit("thyroid", "thyrod"));
+        assertTrue(TermDictionary.withinOneEdit("thyroid", "thyraid"));
+        assertFalse(TermDictionary.withinOneEdit("thyroid", "tyhorid"));
+        assertFalse(TermDictionary.withinOneEdit("thyroid", "thyro"));
+    }
+
+    @Test void testTokenize() {
+        assertEquals(List.of("thyroid", "nodule"), TermDictionary.tokenize("Thyroid nodule, 1.2cm"));
+        // Short words and digits are dropped
+        assertEquals(List.of("with"), TermDictionary.tokenize("DM2 with HTN"));
+    }
+}
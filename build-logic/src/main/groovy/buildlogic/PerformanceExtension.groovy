@@ -0,0 +1,26 @@
+package buildlogic
+
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.provider.ListProperty
+import org.gradle.api.provider.Property
+
+/**
+ * Settings for the 'buildlogic.java-performance-conventions' plugin.
+ */
+abstract class PerformanceExtension {
+    /** Run profile for 'run' and for the packaged launcher: default, lowLatency, smallFootprint, profiling. */
+    abstract Property<String> getProfile()
+
+    /** JFR event configuration (.jfc) used by the profiling profile. */
+    abstract RegularFileProperty getJfrSettings()
+
+    /** Modules linked into the trimmed runtime image. */
+    abstract ListProperty<String> getImageModules()
+
+    /** Modular jars linked into the runtime image instead of shipped on the class path (e.g. JavaFX). */
+    abstract ConfigurableFileCollection getImageModulePath()
+
+    /** Program arguments for the CDS training run; the app should exit by itself when given them. */
+    abstract ListProperty<String> getCdsTrainingArgs()
+}